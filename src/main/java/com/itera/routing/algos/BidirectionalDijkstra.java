@@ -0,0 +1,95 @@
+package com.itera.routing.algos;
+
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Bidirectional Dijkstra over a {@link CsrGraph}. The best meeting distance μ is updated whenever either
+ * search improves a node the other one has already reached, and the side with the smaller queue minimum is
+ * expanded next. The search stops once topF + topB ≥ μ, at which point μ is the shortest distance.
+ * <p>
+ * With a potential π the forward search uses π and the backward one -π. Both then work on the same reduced
+ * edge costs, so the stopping rule stays keyF + keyB ≥ μ; π has to be consistent for both directions, e.g.
+ * the average of a forward and a backward estimate.
+ */
+@Slf4j
+public class BidirectionalDijkstra {
+
+    private final CsrDijkstra forward;
+    private final CsrDijkstra backward;
+
+    @Getter
+    private double best;
+
+    @Getter
+    private int meeting;
+
+    public BidirectionalDijkstra(CsrGraph graph, SearchWorkspace fwd, SearchWorkspace bckg) {
+        this(graph, n -> 0.0, fwd, bckg);
+    }
+
+    public BidirectionalDijkstra(
+        CsrGraph graph,
+        IntToDoubleFunction potential,
+        SearchWorkspace fwd,
+        SearchWorkspace bckg
+    ) {
+        this.forward = new CsrDijkstra(graph, null, Dijkstra.Direction.FORWARD, potential, fwd);
+        this.backward = new CsrDijkstra(graph, null, Dijkstra.Direction.BACKWARD, n -> -potential.applyAsDouble(n), bckg);
+        forward.setRelaxation((node, distance) -> meet(node, distance + backward.getDistance(node)));
+        backward.setRelaxation((node, distance) -> meet(node, distance + forward.getDistance(node)));
+    }
+
+    public ShortestPath findShortestPath(int from, int to) {
+        forward.init();
+        backward.init();
+        best = Double.POSITIVE_INFINITY;
+        meeting = -1;
+
+        forward.initRouting(from);
+        backward.initRouting(to);
+        meet(from, backward.getDistance(from));
+
+        while (true) {
+            double topF = forward.getCandidateMinKey();
+            double topB = backward.getCandidateMinKey();
+            if (topF + topB >= best) {
+                break;
+            }
+            CsrDijkstra side = topF <= topB ? forward : backward;
+            if (!side.doStep(-1)) {
+                break;
+            }
+        }
+
+        log.info("Joined visited: {}", getVisitedCount());
+        return shortestPath();
+    }
+
+    public int getVisitedCount() {
+        return forward.getVisitedCount() + backward.getVisitedCount();
+    }
+
+    private ShortestPath shortestPath() {
+        if (meeting < 0) {
+            ShortestPath sp = new ShortestPath();
+            sp.setLength(Double.MAX_VALUE);
+            sp.setNodes(List.of());
+            sp.setEdges(List.of());
+            return sp;
+        }
+        return forward.shortestPath(meeting).join(backward.shortestPath(meeting));
+    }
+
+    private void meet(int node, double distance) {
+        if (distance < best) {
+            best = distance;
+            meeting = node;
+        }
+    }
+}
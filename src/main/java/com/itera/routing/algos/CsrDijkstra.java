@@ -0,0 +1,255 @@
+package com.itera.routing.algos;
+
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Dijkstra / A* over a {@link CsrGraph}. Works with dense node indices; the primitive state arrays live in a
+ * {@link SearchWorkspace}, usually borrowed from a pool so repeated queries do not allocate them. An optional
+ * overlay graph over the same nodes (e.g. CH shortcuts) is relaxed together with the base edges; its edges are
+ * indexed after the base ones. The candidate queue is pluggable, see {@link IndexedPriorityQueue.Type}.
+ */
+public class CsrDijkstra {
+
+    @FunctionalInterface
+    public interface Restriction {
+        boolean test(int node, int neighbour);
+    }
+
+    @FunctionalInterface
+    public interface EdgeRestriction {
+        boolean test(int edge);
+    }
+
+    @FunctionalInterface
+    public interface Pruning {
+        boolean test(int node, double distance);
+    }
+
+    @FunctionalInterface
+    public interface Relaxation {
+        void relaxed(int node, double distance);
+    }
+
+    private final CsrGraph graph;
+    private final CsrGraph overlay;
+    private final Dijkstra.Direction direction;
+    private final IntToDoubleFunction h;
+
+    private final SearchWorkspace workspace;
+    private final IndexedPriorityQueue candidates;
+
+    @Getter
+    private int visitedCount;
+
+    @Getter
+    private int lastVisited = -1;
+
+    @Getter
+    @Setter
+    private double lengthLimit = Double.MAX_VALUE;
+
+    @Getter
+    @Setter
+    private Restriction nodeRestriction = (n, neighbour) -> false;
+
+    /**
+     * Skips single edges, indexed like {@link #getParentEdge(int)}.
+     */
+    @Getter
+    @Setter
+    private EdgeRestriction edgeRestriction = edge -> false;
+
+    /**
+     * Skips a node reached with the given tentative distance, e.g. by a reach bound.
+     */
+    @Getter
+    @Setter
+    private Pruning pruning = (node, distance) -> false;
+
+    @Getter
+    @Setter
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Called whenever the tentative distance of a node improves.
+     */
+    @Getter
+    @Setter
+    private Relaxation relaxation;
+
+    public CsrDijkstra(CsrGraph graph, Dijkstra.Direction direction, IntToDoubleFunction h) {
+        this(graph, null, direction, h);
+    }
+
+    public CsrDijkstra(CsrGraph graph, CsrGraph overlay, Dijkstra.Direction direction, IntToDoubleFunction h) {
+        this(graph, overlay, direction, h, IndexedPriorityQueue.Type.DARY);
+    }
+
+    public CsrDijkstra(
+        CsrGraph graph,
+        CsrGraph overlay,
+        Dijkstra.Direction direction,
+        IntToDoubleFunction h,
+        IndexedPriorityQueue.Type queueType
+    ) {
+        this(graph, overlay, direction, h, new SearchWorkspace(graph.getNodeCount(), queueType));
+    }
+
+    public CsrDijkstra(
+        CsrGraph graph,
+        CsrGraph overlay,
+        Dijkstra.Direction direction,
+        IntToDoubleFunction h,
+        SearchWorkspace workspace
+    ) {
+        this.graph = graph;
+        this.overlay = overlay;
+        this.direction = direction;
+        this.h = h;
+        this.workspace = workspace;
+        this.candidates = workspace.getCandidates();
+        init();
+    }
+
+    public void init() {
+        workspace.reset();
+        visitedCount = 0;
+        lastVisited = -1;
+    }
+
+    public double getCandidateMinKey() {
+        return candidates.getMinKey();
+    }
+
+    public void initRouting(int node) {
+        workspace.update(node, 0.0, -1, -1);
+        candidates.update(node, h.applyAsDouble(node));
+    }
+
+    public boolean doStep(int to) {
+
+        int node = candidates.extractMin();
+        if (visitedCount > limit || node < 0 || node == to || workspace.getDistance(node) > lengthLimit) {
+            return false;
+        }
+
+        workspace.settle(node);
+        visitedCount++;
+        lastVisited = node;
+        relaxNeighbors(node);
+
+        return true;
+    }
+
+    public void route(int from) {
+        init();
+        initRouting(from);
+
+        while (doStep(-1)) {
+        }
+    }
+
+    public ShortestPath findShortestPath(int from, int to) {
+        init();
+        initRouting(from);
+
+        while (doStep(to)) {
+        }
+
+        return shortestPath(to);
+    }
+
+    public double getDistance(int node) {
+        return workspace.getDistance(node);
+    }
+
+    public boolean isVisited(int node) {
+        return workspace.isSettled(node);
+    }
+
+    public int getParent(int node) {
+        return workspace.getParent(node);
+    }
+
+    public int getParentEdge(int node) {
+        return workspace.getParentEdge(node);
+    }
+
+    /**
+     * Path between the search origin and the node in travel order, i.e. origin first for forward searches
+     * and origin last for backward ones.
+     */
+    public ShortestPath shortestPath(int to) {
+        List<String> edges = new ArrayList<>();
+        List<Long> nodes = new ArrayList<>();
+
+        int n = to;
+        nodes.add(graph.nodeId(n));
+        while (workspace.getParentEdge(n) >= 0) {
+            edges.add(edgeId(workspace.getParentEdge(n)));
+            n = workspace.getParent(n);
+            nodes.add(graph.nodeId(n));
+        }
+
+        if (direction == Dijkstra.Direction.FORWARD) {
+            Collections.reverse(nodes);
+            Collections.reverse(edges);
+        }
+
+        ShortestPath sp = new ShortestPath();
+        double length = workspace.getDistance(to);
+        sp.setLength(length != Double.POSITIVE_INFINITY ? length : Double.MAX_VALUE);
+        sp.setNodes(nodes);
+        sp.setEdges(edges);
+        return sp;
+    }
+
+    private String edgeId(int edge) {
+        int baseEdges = graph.getEdgeCount();
+        return edge < baseEdges ? graph.edgeId(edge) : overlay.edgeId(edge - baseEdges);
+    }
+
+    private void relaxNeighbors(int node) {
+        relaxNeighbors(graph, node, 0);
+        if (overlay != null) {
+            relaxNeighbors(overlay, node, graph.getEdgeCount());
+        }
+    }
+
+    private void relaxNeighbors(CsrGraph g, int node, int edgeOffset) {
+        if (direction == Dijkstra.Direction.FORWARD) {
+            for (int e = g.outBegin(node); e < g.outEnd(node); e++) {
+                relax(node, g.target(e), edgeOffset + e, g.weight(e));
+            }
+        } else {
+            for (int i = g.inBegin(node); i < g.inEnd(node); i++) {
+                relax(node, g.inSource(i), edgeOffset + g.inEdge(i), g.inWeight(i));
+            }
+        }
+    }
+
+    private void relax(int node, int neighbour, int edge, double weight) {
+        if (workspace.isSettled(neighbour) || nodeRestriction.test(node, neighbour) || edgeRestriction.test(edge)) {
+            return;
+        }
+
+        double newNeighbourCost = workspace.getDistance(node) + weight;
+        if (newNeighbourCost < workspace.getDistance(neighbour) && !pruning.test(neighbour, newNeighbourCost)) {
+            workspace.update(neighbour, newNeighbourCost, node, edge);
+            if (relaxation != null) {
+                relaxation.relaxed(neighbour, newNeighbourCost);
+            }
+            candidates.update(neighbour, newNeighbourCost + h.applyAsDouble(neighbour));
+        }
+    }
+
+}
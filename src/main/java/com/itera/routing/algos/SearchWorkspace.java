@@ -0,0 +1,87 @@
+package com.itera.routing.algos;
+
+import com.itera.routing.utils.IndexedPriorityQueue;
+
+import java.util.Arrays;
+
+/**
+ * Per-search state sized to the graph: tentative distances, parents and the candidate queue. Entries are
+ * tagged with the generation that wrote them, so {@link #reset()} only bumps the generation instead of
+ * clearing the arrays. Borrowed from a {@link SearchWorkspacePool} and returned by {@link #close()}.
+ */
+public class SearchWorkspace implements AutoCloseable {
+
+    private final SearchWorkspacePool pool;
+    private final int[] stamps;
+    private final int[] settled;
+    private final double[] distances;
+    private final int[] parents;
+    private final int[] parentEdges;
+    private final IndexedPriorityQueue candidates;
+    private int generation;
+
+    public SearchWorkspace(int capacity, IndexedPriorityQueue.Type queueType) {
+        this(null, capacity, queueType);
+    }
+
+    SearchWorkspace(SearchWorkspacePool pool, int capacity, IndexedPriorityQueue.Type queueType) {
+        this.pool = pool;
+        this.stamps = new int[capacity];
+        this.settled = new int[capacity];
+        this.distances = new double[capacity];
+        this.parents = new int[capacity];
+        this.parentEdges = new int[capacity];
+        this.candidates = queueType.create(capacity);
+    }
+
+    public int getCapacity() {
+        return stamps.length;
+    }
+
+    public void reset() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            Arrays.fill(settled, 0);
+            generation = 1;
+        }
+        candidates.clear();
+    }
+
+    public IndexedPriorityQueue getCandidates() {
+        return candidates;
+    }
+
+    public double getDistance(int node) {
+        return stamps[node] == generation ? distances[node] : Double.POSITIVE_INFINITY;
+    }
+
+    public int getParent(int node) {
+        return stamps[node] == generation ? parents[node] : -1;
+    }
+
+    public int getParentEdge(int node) {
+        return stamps[node] == generation ? parentEdges[node] : -1;
+    }
+
+    public void update(int node, double distance, int parent, int parentEdge) {
+        stamps[node] = generation;
+        distances[node] = distance;
+        parents[node] = parent;
+        parentEdges[node] = parentEdge;
+    }
+
+    public boolean isSettled(int node) {
+        return settled[node] == generation;
+    }
+
+    public void settle(int node) {
+        settled[node] = generation;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.itera.routing.algos;
+
+import com.itera.routing.utils.IndexedPriorityQueue;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per-thread free lists of {@link SearchWorkspace}s. A thread keeps the workspaces it has used, so after
+ * warm-up a query borrows and returns them without allocating. Workspaces must be closed on the thread
+ * that borrowed them.
+ */
+@RequiredArgsConstructor
+public class SearchWorkspacePool {
+
+    @Getter
+    private final int capacity;
+
+    @Getter
+    private final IndexedPriorityQueue.Type queueType;
+
+    private final ThreadLocal<ArrayDeque<SearchWorkspace>> free = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public SearchWorkspace borrow() {
+        SearchWorkspace workspace = free.get().poll();
+        if (workspace == null) {
+            workspace = new SearchWorkspace(this, capacity, queueType);
+        }
+        workspace.reset();
+        return workspace;
+    }
+
+    void release(SearchWorkspace workspace) {
+        free.get().push(workspace);
+    }
+}
@@ -1,85 +1,149 @@
 package com.itera.routing.algos.alt;
 
 
-import jakarta.annotation.PostConstruct;
+import com.itera.routing.topology.CsrGraph;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.tuple.Pair;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
-@Component
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Landmark distance tables indexed by [landmark][dense node index], one column per landmark and direction.
+ * Columns are heap-wrapped when loaded from the ALT file and mapped when read from a snapshot. Unreachable
+ * pairs hold {@link #UNREACHABLE}.
+ */
 @Slf4j
 @Getter
-@Setter
 @RequiredArgsConstructor
 public class ALTData {
 
-    private Map<Pair<Long, Long>, Double> distances = new HashMap<>();
-    private Set<Long> landmarks = new HashSet<>();
-    private boolean useAlt = true;
+    public static final float UNREACHABLE = Float.MAX_VALUE;
+
+    private final CsrGraph graph;
+    private final IntBuffer landmarks;
+    private final FloatBuffer[] fromLandmark;
+    private final FloatBuffer[] toLandmark;
 
-    @Value("${path.alt}")
-    private final String fileName;
+    public static ALTData empty(CsrGraph graph) {
+        return new ALTData(graph, IntBuffer.allocate(0), new FloatBuffer[0], new FloatBuffer[0]);
+    }
 
-    @PostConstruct
-    public void load() {
+    /**
+     * Reads the ALT file: (landmark id, node id, landmark → node, node → landmark) records terminated by -1.
+     */
+    public static ALTData load(String fileName, CsrGraph graph) {
 
-        DataInputStream dis = null;
         if (fileName == null || fileName.isEmpty()) {
             log.warn("no filename specified ALT loading is skipped!");
-            return;
+            return empty(graph);
         }
 
-        try {
-            dis = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+        int n = graph.getNodeCount();
+        List<Integer> landmarks = new ArrayList<>();
+        List<float[]> fromLandmark = new ArrayList<>();
+        List<float[]> toLandmark = new ArrayList<>();
+        int unknown = 0;
+
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
             long altMemory = -1;
+            float[] from = null;
+            float[] to = null;
             while (true) {
 
                 long altNodeId = dis.readLong();
                 if (altNodeId == -1) {
                     break;
                 }
-                landmarks.add(altNodeId);
 
                 if (altMemory != altNodeId) {
                     log.info("ALT node: {}", altNodeId);
                     altMemory = altNodeId;
+                    int landmark = graph.indexOf(altNodeId);
+                    if (landmark < 0) {
+                        log.warn("ALT node {} not found in graph, skipped", altNodeId);
+                        from = null;
+                        to = null;
+                    } else {
+                        int l = landmarks.indexOf(landmark);
+                        if (l < 0) {
+                            landmarks.add(landmark);
+                            fromLandmark.add(unreachable(n));
+                            toLandmark.add(unreachable(n));
+                            l = landmarks.size() - 1;
+                        }
+                        from = fromLandmark.get(l);
+                        to = toLandmark.get(l);
+                    }
                 }
 
                 long nodeId = dis.readLong();
                 double distanceAltToNode = dis.readDouble();
                 double distanceNodeToAlt = dis.readDouble();
 
-
-                distances.put(Pair.of(altNodeId, nodeId), distanceAltToNode);
-                distances.put(Pair.of(nodeId, altNodeId), distanceNodeToAlt);
-
+                if (from == null) {
+                    continue;
+                }
+                int node = graph.indexOf(nodeId);
+                if (node < 0) {
+                    unknown++;
+                    continue;
+                }
+                from[node] = toFloat(distanceAltToNode);
+                to[node] = toFloat(distanceNodeToAlt);
             }
 
-        } catch (Exception e) {
+        } catch (EOFException e) {
+            log.debug("ALT file {} has no terminator", fileName);
+        } catch (IOException e) {
             log.warn("Cannot read ALT data. Reason: {}", e);
-        } finally {
-            if (dis != null) {
-                try {
-                    dis.close();
-                } catch (IOException e) {
-                    log.warn("Cannot close ALT reader. Reason: {}", e);
-                }
-            }
         }
 
+        if (unknown > 0) {
+            log.warn("{} ALT entries refer to unknown nodes", unknown);
+        }
+
+        return new ALTData(
+            graph,
+            IntBuffer.wrap(landmarks.stream().mapToInt(Integer::intValue).toArray()),
+            fromLandmark.stream().map(FloatBuffer::wrap).toArray(FloatBuffer[]::new),
+            toLandmark.stream().map(FloatBuffer::wrap).toArray(FloatBuffer[]::new)
+        );
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.limit();
+    }
+
+    public int landmark(int l) {
+        return landmarks.get(l);
+    }
+
+    public float fromLandmark(int l, int node) {
+        return fromLandmark[l].get(node);
+    }
+
+    public float toLandmark(int l, int node) {
+        return toLandmark[l].get(node);
+    }
+
+    private static float[] unreachable(int n) {
+        float[] distances = new float[n];
+        Arrays.fill(distances, UNREACHABLE);
+        return distances;
+    }
+
+    private static float toFloat(double distance) {
+        return distance >= UNREACHABLE ? UNREACHABLE : (float) distance;
     }
 
 }
@@ -1,82 +1,105 @@
 package com.itera.routing.algos.alt;
 
 
-import com.itera.routing.algos.LandmarkRating;
+import com.itera.routing.algos.Dijkstra;
 import com.itera.routing.topology.Node;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
 
+/**
+ * ALT lower bound to a fixed target over dense node indices. The target's landmark distances are copied
+ * once per query, evaluation only reads the landmark columns and allocates nothing.
+ * <p>
+ * Distances are stored as floats, so every landmark bound is lowered by one ulp of its larger operand to stay
+ * admissible.
+ */
 @Slf4j
 public class ALTHeuristics {
 
     private static final int STEPS = 10;
     private static final int SUBSET_SIZE = 4;
-    private final Node target;
-    private final Map<Pair<Long, Long>, Double> data;
-    private Map<Long, Integer> usedLandmarks = new HashMap<>();
-    private Map<Long, LandmarkRating> landmarkRatings = new HashMap<>();
-    private Set<Long> landmarkIds;
+    private final ALTData data;
+    private final FloatBuffer[] fromColumns;
+    private final FloatBuffer[] toColumns;
+    @Getter
+    private final int target;
+    private final float[] targetFrom;
+    private final float[] targetTo;
+    private final int[] usedLandmarks;
+    private final double[] landmarkRatings;
+    private int[] activeLandmarks;
     private int calibratingStep;
 
     public ALTHeuristics(Node target, ALTData data) {
+        this(data.getGraph().indexOf(target.getId()), data);
+    }
+
+    public ALTHeuristics(int target, ALTData data) {
+        this(target, data, Dijkstra.Direction.FORWARD);
+    }
+
+    /**
+     * Forward heuristics bound the distance from a node to the target, backward ones the distance from the
+     * target (then the search origin) to a node; the latter swaps the roles of the landmark columns.
+     */
+    public ALTHeuristics(int target, ALTData data, Dijkstra.Direction direction) {
+        this.data = data;
         this.target = target;
-        this.data = data.getDistances();
-        this.landmarkIds = data.getLandmarks();
+        boolean forward = direction == Dijkstra.Direction.FORWARD;
+        this.fromColumns = forward ? data.getFromLandmark() : data.getToLandmark();
+        this.toColumns = forward ? data.getToLandmark() : data.getFromLandmark();
+        int count = data.getLandmarkCount();
+        this.targetFrom = new float[count];
+        this.targetTo = new float[count];
+        for (int l = 0; l < count; l++) {
+            targetFrom[l] = fromColumns[l].get(target);
+            targetTo[l] = toColumns[l].get(target);
+        }
+        this.usedLandmarks = new int[count];
+        this.landmarkRatings = new double[count];
+        this.activeLandmarks = new int[count];
+        Arrays.setAll(activeLandmarks, l -> l);
         init();
     }
 
     public void init() {
-        landmarkRatings.clear();
+        Arrays.fill(landmarkRatings, 0.0);
         calibratingStep = 0;
     }
 
     public double heuristics(Node node) {
-        return getLandmarkDistance(node, target);
+        return heuristics(data.getGraph().indexOf(node.getId()));
     }
 
-    private double getLandmarkDistance(Node from, Node to) {
+    public double heuristics(int node) {
 
         double max = 0;
-        long usedLandmark = -1;
-
-        for (long landmarkId : landmarkIds) {
-
-            double candidateFNL = getDistanceFromNodeToLandmark(
-                from.getId(),
-                landmarkId
-            ) - getDistanceFromNodeToLandmark(to.getId(), landmarkId);
-            double candidateFLN = getDistanceFromLandmarkToNode(landmarkId, to.getId()) - getDistanceFromLandmarkToNode(
-                landmarkId,
-                from.getId()
-            );
+        int usedLandmark = -1;
+
+        for (int l : activeLandmarks) {
+
+            float nodeTo = toColumns[l].get(node);
+            float nodeFrom = fromColumns[l].get(node);
+            double candidateFNL = (double) nodeTo - targetTo[l] - Math.ulp(Math.max(nodeTo, targetTo[l]));
+            double candidateFLN = (double) targetFrom[l] - nodeFrom - Math.ulp(Math.max(targetFrom[l], nodeFrom));
             double candidate = Math.max(candidateFLN, candidateFNL);
 
-            if (candidate < 0) {
-                //candidate = -1 * candidate;
-            }
             if (candidate > max) {
                 max = candidate;
-                usedLandmark = landmarkId;
+                usedLandmark = l;
             }
 
             if (calibratingStep < STEPS) {
-                parse(landmarkId, candidate);
+                landmarkRatings[l] += candidate;
             }
 
         }
 
-        Integer landmarkCount = usedLandmarks.get(usedLandmark);
-        if (landmarkCount == null) {
-            usedLandmarks.put(usedLandmark, 1);
-        } else {
-            usedLandmarks.put(usedLandmark, landmarkCount + 1);
+        if (usedLandmark >= 0) {
+            usedLandmarks[usedLandmark]++;
         }
 
         calibratingStep++;
@@ -88,38 +111,15 @@ public class ALTHeuristics {
 
     }
 
-    private double getDistanceFromLandmarkToNode(long landmark, long node) {
-        Double dist = data.get(Pair.of(landmark, node));
-        return dist!=null?dist:Double.MAX_VALUE;
-    }
-
-    private double getDistanceFromNodeToLandmark(long node, long landmark) {
-        Double dist = data.get(Pair.of(node, landmark));
-        return dist!=null?dist:Double.MAX_VALUE;
-    }
-
     private void evaluateLandmarks() {
 
-        List<LandmarkRating> ratings = new ArrayList<>(landmarkRatings.values());
-        Collections.sort(ratings, (LandmarkRating o1, LandmarkRating o2) -> (int) (o2.getRating() - o1.getRating()));
-
-        ratings.stream().forEach((rating) -> {
-            //log.info("landmark: {}, rating: {}", rating.getLandmarkId(), rating.getRating());
-        });
-
-        landmarkIds.clear();
-        for (int i = 0; i < SUBSET_SIZE; i++) {
-            landmarkIds.add(ratings.get(i).getLandmarkId());
-        }
-
-    }
+        Integer[] ratings = new Integer[landmarkRatings.length];
+        Arrays.setAll(ratings, l -> l);
+        Arrays.sort(ratings, (o1, o2) -> Double.compare(landmarkRatings[o2], landmarkRatings[o1]));
 
-    private void parse(long landmarkId, double candidate) {
-        LandmarkRating rating = landmarkRatings.get(landmarkId);
-        if (rating == null) {
-            landmarkRatings.put(landmarkId, new LandmarkRating(landmarkId, candidate));
-        } else {
-            rating.incRating(candidate);
+        activeLandmarks = new int[Math.min(SUBSET_SIZE, ratings.length)];
+        for (int i = 0; i < activeLandmarks.length; i++) {
+            activeLandmarks[i] = ratings[i];
         }
 
     }
@@ -0,0 +1,237 @@
+package com.itera.routing.algos.alt;
+
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Landmarks on the core of a contraction hierarchy, the highest ranked nodes. The core graph holds all CH
+ * edges between core nodes; the nodes below the core are contracted and do not change distances between core
+ * nodes. Landmark distance tables only cover the core, so they shrink by the ratio of all nodes to core nodes.
+ * <p>
+ * Besides the upward and downward CH edges of the {@link CHQueryGraph}, a core node needs its edges to lower
+ * core nodes in both directions; they are kept here. Core nodes are addressed by rank position, the tables by
+ * position minus {@link #getCoreStart()}. See {@link CoreALTQuery} for the query.
+ */
+@Slf4j
+@Getter
+public class CoreALT {
+
+    private final CHQueryGraph graph;
+
+    /**
+     * first rank position of the core
+     */
+    private final int coreStart;
+
+    /**
+     * core edges to lower core nodes, indexed by core position
+     */
+    private final int[] lowerOutOffsets;
+    private final int[] lowerOutTargets;
+    private final double[] lowerOutWeights;
+    private final int[] lowerOutEdges;
+
+    /**
+     * core edges from lower core nodes, indexed by core position
+     */
+    private final int[] lowerInOffsets;
+    private final int[] lowerInSources;
+    private final double[] lowerInWeights;
+    private final int[] lowerInEdges;
+
+    /**
+     * landmark rank positions
+     */
+    private final int[] landmarks;
+
+    /**
+     * landmark distances interleaved by core position, {@code [core position * landmarks + landmark]}, so one
+     * potential evaluation reads a single block
+     */
+    private final float[] fromLandmark;
+    private final float[] toLandmark;
+
+    /**
+     * one ulp of the largest finite landmark distance, the rounding step of the tables
+     */
+    private final double rounding;
+
+    public CoreALT(CHQueryGraph graph, double coreFraction, int landmarkCount) {
+
+        long start = System.currentTimeMillis();
+        this.graph = graph;
+        int n = graph.getNodeCount();
+        int coreSize = Math.max(1, Math.min(n, (int) Math.ceil(n * coreFraction)));
+        this.coreStart = n - coreSize;
+
+        int[] upOffsets = graph.getUpOffsets();
+        int[] downOffsets = graph.getDownOffsets();
+        this.lowerOutOffsets = new int[coreSize + 1];
+        this.lowerInOffsets = new int[coreSize + 1];
+        for (int p = coreStart; p < n; p++) {
+            for (int i = downOffsets[p]; i < downOffsets[p + 1]; i++) {
+                lowerOutOffsets[graph.getDownSources()[i] - coreStart + 1]++;
+            }
+            for (int i = upOffsets[p]; i < upOffsets[p + 1]; i++) {
+                lowerInOffsets[graph.getUpTargets()[i] - coreStart + 1]++;
+            }
+        }
+        Arrays.parallelPrefix(lowerOutOffsets, Integer::sum);
+        Arrays.parallelPrefix(lowerInOffsets, Integer::sum);
+
+        this.lowerOutTargets = new int[lowerOutOffsets[coreSize]];
+        this.lowerOutWeights = new double[lowerOutOffsets[coreSize]];
+        this.lowerOutEdges = new int[lowerOutOffsets[coreSize]];
+        this.lowerInSources = new int[lowerInOffsets[coreSize]];
+        this.lowerInWeights = new double[lowerInOffsets[coreSize]];
+        this.lowerInEdges = new int[lowerInOffsets[coreSize]];
+        int[] outFill = Arrays.copyOf(lowerOutOffsets, coreSize);
+        int[] inFill = Arrays.copyOf(lowerInOffsets, coreSize);
+        for (int p = coreStart; p < n; p++) {
+            for (int i = downOffsets[p]; i < downOffsets[p + 1]; i++) {
+                int slot = outFill[graph.getDownSources()[i] - coreStart]++;
+                lowerOutTargets[slot] = p;
+                lowerOutWeights[slot] = graph.getDownWeights()[i];
+                lowerOutEdges[slot] = graph.getDownEdges()[i];
+            }
+            for (int i = upOffsets[p]; i < upOffsets[p + 1]; i++) {
+                int slot = inFill[graph.getUpTargets()[i] - coreStart]++;
+                lowerInSources[slot] = p;
+                lowerInWeights[slot] = graph.getUpWeights()[i];
+                lowerInEdges[slot] = graph.getUpEdges()[i];
+            }
+        }
+
+        int count = Math.min(landmarkCount, coreSize);
+        this.landmarks = new int[count];
+        this.fromLandmark = new float[coreSize * count];
+        this.toLandmark = new float[coreSize * count];
+        selectLandmarks();
+        this.rounding = Math.ulp(Math.max(largest(fromLandmark), largest(toLandmark)));
+
+        log.info(
+            "Core-ALT built in {} ms: {} core nodes, {} landmarks, {} lower core edges",
+            System.currentTimeMillis() - start,
+            coreSize,
+            count,
+            lowerOutTargets.length
+        );
+    }
+
+    public int getCoreSize() {
+        return graph.getNodeCount() - coreStart;
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    public boolean isCore(int position) {
+        return position >= coreStart;
+    }
+
+    /**
+     * Farthest-point selection: every next landmark is the core node whose closest landmark is the farthest
+     * one. The backward tables of all landmarks are then computed in parallel.
+     */
+    private void selectLandmarks() {
+        if (landmarks.length == 0) {
+            return;
+        }
+
+        int coreSize = getCoreSize();
+        SearchWorkspace workspace = new SearchWorkspace(graph.getNodeCount(), IndexedPriorityQueue.Type.DARY);
+        double[] closest = new double[coreSize];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        int count = landmarks.length;
+        int next = farthest(distances(coreStart, true, workspace), null);
+        for (int l = 0; l < count; l++) {
+            landmarks[l] = next;
+            float[] from = distances(next, true, workspace);
+            for (int c = 0; c < coreSize; c++) {
+                fromLandmark[c * count + l] = from[c];
+                closest[c] = Math.min(closest[c], from[c]);
+            }
+            next = farthest(from, closest);
+        }
+
+        ThreadLocal<SearchWorkspace> workspaces = ThreadLocal.withInitial(
+            () -> new SearchWorkspace(graph.getNodeCount(), IndexedPriorityQueue.Type.DARY)
+        );
+        IntStream.range(0, count).parallel().forEach(l -> {
+            float[] to = distances(landmarks[l], false, workspaces.get());
+            for (int c = 0; c < coreSize; c++) {
+                toLandmark[c * count + l] = to[c];
+            }
+        });
+    }
+
+    private static float largest(float[] distances) {
+        float largest = 0;
+        for (float distance : distances) {
+            if (distance != ALTData.UNREACHABLE) {
+                largest = Math.max(largest, distance);
+            }
+        }
+        return largest;
+    }
+
+    private int farthest(float[] distances, double[] closest) {
+        int best = coreStart;
+        double max = -1;
+        for (int c = 0; c < distances.length; c++) {
+            double d = closest != null ? closest[c] : distances[c];
+            if (d != ALTData.UNREACHABLE && d != Double.POSITIVE_INFINITY && d > max) {
+                max = d;
+                best = coreStart + c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Dijkstra inside the core from (forward) or to (backward) a core node.
+     */
+    private float[] distances(int origin, boolean forward, SearchWorkspace workspace) {
+        workspace.reset();
+        IndexedPriorityQueue candidates = workspace.getCandidates();
+        workspace.update(origin, 0.0, -1, -1);
+        candidates.update(origin, 0.0);
+
+        int[] offsets = forward ? graph.getUpOffsets() : graph.getDownOffsets();
+        int[] neighbours = forward ? graph.getUpTargets() : graph.getDownSources();
+        double[] weights = forward ? graph.getUpWeights() : graph.getDownWeights();
+        int[] lowerOffsets = forward ? lowerOutOffsets : lowerInOffsets;
+        int[] lowerNeighbours = forward ? lowerOutTargets : lowerInSources;
+        double[] lowerWeights = forward ? lowerOutWeights : lowerInWeights;
+
+        float[] distances = new float[getCoreSize()];
+        Arrays.fill(distances, ALTData.UNREACHABLE);
+        int u;
+        while ((u = candidates.extractMin()) >= 0) {
+            workspace.settle(u);
+            double distance = workspace.getDistance(u);
+            distances[u - coreStart] = (float) distance;
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                relax(workspace, neighbours[i], distance + weights[i]);
+            }
+            for (int i = lowerOffsets[u - coreStart]; i < lowerOffsets[u - coreStart + 1]; i++) {
+                relax(workspace, lowerNeighbours[i], distance + lowerWeights[i]);
+            }
+        }
+        return distances;
+    }
+
+    private void relax(SearchWorkspace workspace, int node, double distance) {
+        if (distance < workspace.getDistance(node)) {
+            workspace.update(node, distance, -1, -1);
+            workspace.getCandidates().update(node, distance);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.itera.routing.algos.alt;
+
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.algos.ch.ShortcutUnpacker;
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import com.itera.routing.utils.IntList;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Core-ALT query. Both sides first run the upward CH search below the core: core nodes are reached but not
+ * expanded and become entry nodes. Paths whose CH peak lies below the core meet there. Then a bidirectional
+ * ALT search runs inside the core, started from all entry nodes with their distances.
+ * <p>
+ * The targets of the forward core search are the backward entry nodes c with the distance db(c) to the
+ * target, so the landmark bound to the target is the minimum over c of lb(v, c) + db(c). Taking it per
+ * landmark and per side of the triangle inequality folds the entries into two constants per landmark and
+ * leaves an ordinary consistent potential; the backward side works the same way. Both are averaged like in
+ * {@link com.itera.routing.algos.BidirectionalDijkstra}.
+ * <p>
+ * The landmark tables are floats, so along tight landmark edges the averaged potential can be off by a few
+ * rounding steps and a reduced cost can come out slightly negative. The core search therefore reopens a
+ * settled node whose distance improves, and stops only when the queue tops exceed the best distance by the
+ * largest possible potential error on both sides.
+ * <p>
+ * Workspaces are indexed by rank position, like in {@link com.itera.routing.algos.ch.CHQuery}.
+ */
+@Slf4j
+public class CoreALTQuery {
+
+    /**
+     * Rounding steps the sum of both keys may be off by: each bound is off by at most three steps (half a step
+     * for each float, one for each ulp taken off), the averaged potential of a side by three, and two more
+     * absorb the double arithmetic.
+     */
+    private static final int POTENTIAL_ERROR = 8;
+
+    private final CoreALT core;
+    private final CHQueryGraph graph;
+    private final ShortcutUnpacker unpacker;
+    private final SearchWorkspace fwd;
+    private final SearchWorkspace bckg;
+
+    private final IntList forwardEntries = new IntList();
+    private final IntList backwardEntries = new IntList();
+
+    /**
+     * per landmark: min over backward entries of d(L, c) + db(c), max of d(c, L) - db(c)
+     */
+    private final double[] toTargetFrom;
+    private final double[] toTargetTo;
+
+    /**
+     * per landmark: max over forward entries of d(L, c) - df(c), min of df(c) + d(c, L)
+     */
+    private final double[] fromSourceFrom;
+    private final double[] fromSourceTo;
+
+    /**
+     * lower bounds to the target and from the source per core position, valid for the query whose number is
+     * in {@link #boundStamps}
+     */
+    private final double[] toTargetBounds;
+    private final double[] fromSourceBounds;
+    private final int[] boundStamps;
+    private int stamp;
+
+    @Getter
+    private double best;
+
+    @Getter
+    private int meeting;
+
+    @Getter
+    private int visitedCount;
+
+    @Getter
+    private int coreVisitedCount;
+
+    private int origin;
+
+    public CoreALTQuery(CoreALT core, ShortcutUnpacker unpacker, SearchWorkspace fwd, SearchWorkspace bckg) {
+        this.core = core;
+        this.graph = core.getGraph();
+        this.unpacker = unpacker;
+        this.fwd = fwd;
+        this.bckg = bckg;
+        int count = core.getLandmarkCount();
+        this.toTargetFrom = new double[count];
+        this.toTargetTo = new double[count];
+        this.fromSourceFrom = new double[count];
+        this.fromSourceTo = new double[count];
+        this.toTargetBounds = new double[core.getCoreSize()];
+        this.fromSourceBounds = new double[core.getCoreSize()];
+        this.boundStamps = new int[core.getCoreSize()];
+    }
+
+    /**
+     * Runs the query between base graph node indices and returns the distance.
+     */
+    public double route(int from, int to) {
+        fwd.reset();
+        bckg.reset();
+        forwardEntries.clear();
+        backwardEntries.clear();
+        best = Double.POSITIVE_INFINITY;
+        meeting = -1;
+        visitedCount = 0;
+        coreVisitedCount = 0;
+        origin = from;
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(boundStamps, 0);
+            stamp = 1;
+        }
+
+        int s = graph.getPositions()[from];
+        int t = graph.getPositions()[to];
+        reach(fwd, forwardEntries, s, 0.0, -1, -1);
+        reach(bckg, backwardEntries, t, 0.0, -1, -1);
+
+        IndexedPriorityQueue forward = fwd.getCandidates();
+        IndexedPriorityQueue backward = bckg.getCandidates();
+        while (true) {
+            double topF = forward.getMinKey();
+            double topB = backward.getMinKey();
+            boolean forwardDone = topF >= best;
+            boolean backwardDone = topB >= best;
+            if (forwardDone && backwardDone) {
+                break;
+            }
+            if (!forwardDone && (backwardDone || topF <= topB)) {
+                stepUp(fwd, bckg, forwardEntries, true);
+            } else {
+                stepUp(bckg, fwd, backwardEntries, false);
+            }
+        }
+        forward.clear();
+        backward.clear();
+
+        searchCore();
+        return best;
+    }
+
+    public ShortestPath findShortestPath(int from, int to) {
+        route(from, to);
+        log.info("Core-ALT visited: {}, in core: {}", visitedCount, coreVisitedCount);
+        return shortestPath();
+    }
+
+    /**
+     * Combined CH edge indices of the last route, in travel order; empty if the target is unreachable.
+     */
+    public List<Integer> pathEdges() {
+        List<Integer> edges = new ArrayList<>();
+        if (meeting < 0) {
+            return edges;
+        }
+        for (int p = meeting; fwd.getParentEdge(p) >= 0; p = fwd.getParent(p)) {
+            edges.add(fwd.getParentEdge(p));
+        }
+        Collections.reverse(edges);
+        for (int p = meeting; bckg.getParentEdge(p) >= 0; p = bckg.getParent(p)) {
+            edges.add(bckg.getParentEdge(p));
+        }
+        return edges;
+    }
+
+    private ShortestPath shortestPath() {
+        CsrGraph base = graph.getChData().getGraph();
+
+        ShortestPath sp = new ShortestPath();
+        sp.setLength(meeting >= 0 ? best : Double.MAX_VALUE);
+        sp.setEdges(new ArrayList<>());
+        sp.setNodes(new ArrayList<>());
+        if (meeting < 0) {
+            return sp;
+        }
+
+        IntList edges = unpacker.unpack(pathEdges());
+        sp.getNodes().add(base.nodeId(origin));
+        for (int i = 0; i < edges.size(); i++) {
+            int edge = edges.get(i);
+            sp.getEdges().add(base.edgeId(edge));
+            sp.getNodes().add(base.nodeId(base.target(edge)));
+        }
+        return sp;
+    }
+
+    /**
+     * Upward CH step below the core; core nodes are only recorded as entries.
+     */
+    private void stepUp(SearchWorkspace self, SearchWorkspace other, IntList entries, boolean forward) {
+        int u = self.getCandidates().extractMin();
+        self.settle(u);
+        visitedCount++;
+
+        double distance = self.getDistance(u);
+        meet(u, distance + other.getDistance(u));
+
+        int[] offsets = forward ? graph.getDownOffsets() : graph.getUpOffsets();
+        int[] stalling = forward ? graph.getDownSources() : graph.getUpTargets();
+        double[] stallingWeights = forward ? graph.getDownWeights() : graph.getUpWeights();
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            if (self.getDistance(stalling[i]) + stallingWeights[i] < distance) {
+                return;
+            }
+        }
+
+        offsets = forward ? graph.getUpOffsets() : graph.getDownOffsets();
+        int[] neighbours = forward ? graph.getUpTargets() : graph.getDownSources();
+        double[] weights = forward ? graph.getUpWeights() : graph.getDownWeights();
+        int[] edges = forward ? graph.getUpEdges() : graph.getDownEdges();
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            reach(self, entries, neighbours[i], distance + weights[i], u, edges[i]);
+        }
+    }
+
+    private void reach(SearchWorkspace self, IntList entries, int node, double distance, int parent, int edge) {
+        double current = self.getDistance(node);
+        if (distance >= current) {
+            return;
+        }
+        self.update(node, distance, parent, edge);
+        if (!core.isCore(node)) {
+            self.getCandidates().update(node, distance);
+        } else if (current == Double.POSITIVE_INFINITY) {
+            entries.add(node);
+        }
+    }
+
+    private void searchCore() {
+        for (int i = 0; i < forwardEntries.size(); i++) {
+            int c = forwardEntries.get(i);
+            meet(c, fwd.getDistance(c) + bckg.getDistance(c));
+        }
+        if (forwardEntries.isEmpty() || backwardEntries.isEmpty()) {
+            return;
+        }
+        aggregate(backwardEntries, bckg, toTargetFrom, toTargetTo, true);
+        aggregate(forwardEntries, fwd, fromSourceFrom, fromSourceTo, false);
+
+        IndexedPriorityQueue forward = fwd.getCandidates();
+        IndexedPriorityQueue backward = bckg.getCandidates();
+        for (int i = 0; i < forwardEntries.size(); i++) {
+            int c = forwardEntries.get(i);
+            forward.update(c, fwd.getDistance(c) + potential(c));
+        }
+        for (int i = 0; i < backwardEntries.size(); i++) {
+            int c = backwardEntries.get(i);
+            backward.update(c, bckg.getDistance(c) - potential(c));
+        }
+
+        double slack = POTENTIAL_ERROR * core.getRounding();
+        while (true) {
+            double topF = forward.getMinKey();
+            double topB = backward.getMinKey();
+            if (topF + topB >= best + slack) {
+                break;
+            }
+            if (topF <= topB) {
+                stepCore(fwd, bckg, 1);
+            } else {
+                stepCore(bckg, fwd, -1);
+            }
+        }
+    }
+
+    private void stepCore(SearchWorkspace self, SearchWorkspace other, int sign) {
+        int u = self.getCandidates().extractMin();
+        self.settle(u);
+        coreVisitedCount++;
+
+        double distance = self.getDistance(u);
+        boolean forward = sign > 0;
+        int[] offsets = forward ? graph.getUpOffsets() : graph.getDownOffsets();
+        int[] neighbours = forward ? graph.getUpTargets() : graph.getDownSources();
+        double[] weights = forward ? graph.getUpWeights() : graph.getDownWeights();
+        int[] edges = forward ? graph.getUpEdges() : graph.getDownEdges();
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            relaxCore(self, other, sign, u, neighbours[i], distance + weights[i], edges[i]);
+        }
+
+        int c = u - core.getCoreStart();
+        offsets = forward ? core.getLowerOutOffsets() : core.getLowerInOffsets();
+        neighbours = forward ? core.getLowerOutTargets() : core.getLowerInSources();
+        weights = forward ? core.getLowerOutWeights() : core.getLowerInWeights();
+        edges = forward ? core.getLowerOutEdges() : core.getLowerInEdges();
+        for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+            relaxCore(self, other, sign, u, neighbours[i], distance + weights[i], edges[i]);
+        }
+    }
+
+    private void relaxCore(
+        SearchWorkspace self,
+        SearchWorkspace other,
+        int sign,
+        int u,
+        int node,
+        double distance,
+        int edge
+    ) {
+        if (distance >= self.getDistance(node)) {
+            return;
+        }
+        int c = bounds(node);
+        if (distance + (sign > 0 ? toTargetBounds[c] : fromSourceBounds[c]) >= best) {
+            return;
+        }
+        self.update(node, distance, u, edge);
+        self.getCandidates().update(node, distance + sign * potential(node));
+        meet(node, distance + other.getDistance(node));
+    }
+
+    /**
+     * Average of the lower bounds to the target and from the source, for a core position.
+     */
+    private double potential(int node) {
+        int c = bounds(node);
+        return (toTargetBounds[c] - fromSourceBounds[c]) / 2;
+    }
+
+    /**
+     * Evaluates the landmark bounds of a core position once per query and returns its core index.
+     */
+    private int bounds(int node) {
+        int c = node - core.getCoreStart();
+        if (boundStamps[c] == stamp) {
+            return c;
+        }
+
+        float[] from = core.getFromLandmark();
+        float[] to = core.getToLandmark();
+        int count = toTargetFrom.length;
+        double toTarget = 0;
+        double fromSource = 0;
+        for (int l = 0, i = c * count; l < count; l++, i++) {
+            float nodeFrom = from[i];
+            float nodeTo = to[i];
+            if (nodeFrom != ALTData.UNREACHABLE) {
+                toTarget = Math.max(toTarget, toTargetFrom[l] - nodeFrom - Math.ulp(nodeFrom));
+                fromSource = Math.max(fromSource, (double) nodeFrom - fromSourceFrom[l] - Math.ulp(nodeFrom));
+            }
+            if (nodeTo != ALTData.UNREACHABLE) {
+                toTarget = Math.max(toTarget, (double) nodeTo - toTargetTo[l] - Math.ulp(nodeTo));
+                fromSource = Math.max(fromSource, fromSourceTo[l] - nodeTo - Math.ulp(nodeTo));
+            }
+        }
+        toTargetBounds[c] = toTarget;
+        fromSourceBounds[c] = fromSource;
+        boundStamps[c] = stamp;
+        return c;
+    }
+
+    /**
+     * Folds the entries of one side into per-landmark constants. An unreachable landmark distance makes the
+     * corresponding constant useless, it is then set so that its bound is never positive. Landmark distances
+     * are floats: minima are lowered and maxima raised by one ulp of the entry's distance, so together with
+     * the ulp {@link #bounds(int)} takes off for the node's distance every bound is lowered by at least one
+     * ulp of its larger operand and stays admissible.
+     */
+    private void aggregate(IntList entries, SearchWorkspace ws, double[] fromSide, double[] toSide, boolean target) {
+        float[] from = core.getFromLandmark();
+        float[] to = core.getToLandmark();
+        int count = fromSide.length;
+        for (int l = 0; l < count; l++) {
+            double minFrom = Double.POSITIVE_INFINITY;
+            double maxFrom = Double.NEGATIVE_INFINITY;
+            double minTo = Double.POSITIVE_INFINITY;
+            double maxTo = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < entries.size(); i++) {
+                int entry = entries.get(i);
+                int c = entry - core.getCoreStart();
+                double d = ws.getDistance(entry);
+                float entryFrom = from[c * count + l];
+                float entryTo = to[c * count + l];
+                if (entryFrom == ALTData.UNREACHABLE) {
+                    maxFrom = Double.POSITIVE_INFINITY;
+                } else {
+                    minFrom = Math.min(minFrom, entryFrom + d - Math.ulp(entryFrom));
+                    maxFrom = Math.max(maxFrom, entryFrom - d + Math.ulp(entryFrom));
+                }
+                if (entryTo == ALTData.UNREACHABLE) {
+                    maxTo = Double.POSITIVE_INFINITY;
+                } else {
+                    minTo = Math.min(minTo, entryTo + d - Math.ulp(entryTo));
+                    maxTo = Math.max(maxTo, entryTo - d + Math.ulp(entryTo));
+                }
+            }
+            if (target) {
+                fromSide[l] = minFrom;
+                toSide[l] = maxTo;
+            } else {
+                fromSide[l] = maxFrom;
+                toSide[l] = minTo;
+            }
+        }
+    }
+
+    private void meet(int node, double distance) {
+        if (distance < best) {
+            best = distance;
+            meeting = node;
+        }
+    }
+}
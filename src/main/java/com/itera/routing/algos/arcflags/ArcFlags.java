@@ -0,0 +1,183 @@
+package com.itera.routing.algos.arcflags;
+
+import com.itera.routing.algos.CsrDijkstra;
+import com.itera.routing.algos.Dijkstra;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.GeometricBisection;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import com.itera.routing.utils.IntList;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Arc flags over a geometric partition of the graph into at most 64 cells. Every edge keeps one bit per cell
+ * in a single {@code long}: the bit of cell {@code c} is set when the edge lies on a shortest path into
+ * {@code c}. Edges inside a cell are flagged for it, all others by backward searches from the boundary nodes
+ * of the cell, i.e. nodes with an incoming edge from another cell. Every node reached by such a search flags
+ * its tree edge.
+ * <p>
+ * A query only relaxes edges flagged for the cell of the target. Some shortest path always survives: its part
+ * before the last entry into the target cell can be replaced by a search tree path to the entry node, the rest
+ * runs inside the cell.
+ */
+@Slf4j
+public class ArcFlags {
+
+    public static final int MAX_CELLS = Long.SIZE;
+
+    @Getter
+    private final CsrGraph graph;
+
+    @Getter
+    private final int cellCount;
+
+    /**
+     * node index → cell
+     */
+    private final int[] cells;
+
+    /**
+     * edge index → cells the edge leads into
+     */
+    private final long[] flags;
+
+    public ArcFlags(CsrGraph graph, int cellCount) {
+
+        if (cellCount < 1 || cellCount > MAX_CELLS) {
+            throw new IllegalArgumentException("Arc flags support 1 to " + MAX_CELLS + " cells, got " + cellCount);
+        }
+
+        long start = System.currentTimeMillis();
+        this.graph = graph;
+        int n = graph.getNodeCount();
+        int m = graph.getEdgeCount();
+        this.cells = new int[n];
+        this.cellCount = Math.max(1, Math.min(cellCount, n));
+        partition(IntStream.range(0, n).toArray(), 0, this.cellCount);
+
+        this.flags = new long[m];
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.outBegin(v); e < graph.outEnd(v); e++) {
+                if (cells[v] == cells[graph.target(e)]) {
+                    flags[e] |= 1L << cells[v];
+                }
+            }
+        }
+
+        ThreadLocal<SearchWorkspace> workspaces = ThreadLocal.withInitial(
+            () -> new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY)
+        );
+        boolean[] tree = new boolean[m];
+        int boundaryCount = 0;
+        for (int c = 0; c < this.cellCount; c++) {
+            int[] boundary = boundary(c);
+            boundaryCount += boundary.length;
+
+            // concurrent searches only ever set entries to true
+            Arrays.fill(tree, false);
+            Arrays.stream(boundary).parallel().forEach(b -> {
+                CsrDijkstra dijkstra = new CsrDijkstra(
+                    graph,
+                    null,
+                    Dijkstra.Direction.BACKWARD,
+                    v -> 0.0,
+                    workspaces.get()
+                );
+                dijkstra.route(b);
+                for (int v = 0; v < n; v++) {
+                    int edge = dijkstra.getParentEdge(v);
+                    if (dijkstra.isVisited(v) && edge >= 0) {
+                        tree[edge] = true;
+                    }
+                }
+            });
+
+            long bit = 1L << c;
+            for (int e = 0; e < m; e++) {
+                if (tree[e]) {
+                    flags[e] |= bit;
+                }
+            }
+        }
+
+        log.info(
+            "Arc flags built in {} ms: {} cells, {} boundary nodes, {} flags per edge on average",
+            System.currentTimeMillis() - start,
+            this.cellCount,
+            boundaryCount,
+            String.format("%.2f", bitCount() / (double) Math.max(1, m))
+        );
+    }
+
+    public int cell(int node) {
+        return cells[node];
+    }
+
+    public long flags(int edge) {
+        return flags[edge];
+    }
+
+    /**
+     * Dijkstra between node indices relaxing only the edges flagged for the cell of the target.
+     */
+    public ShortestPath findShortestPath(int from, int to, SearchWorkspace workspace) {
+        long mask = 1L << cells[to];
+        CsrDijkstra dijkstra = new CsrDijkstra(graph, null, Dijkstra.Direction.FORWARD, v -> 0.0, workspace);
+        dijkstra.setEdgeRestriction(edge -> (flags[edge] & mask) == 0);
+        return dijkstra.findShortestPath(from, to);
+    }
+
+    private int[] boundary(int cell) {
+        IntList boundary = new IntList();
+        for (int v = 0; v < cells.length; v++) {
+            if (cells[v] != cell) {
+                continue;
+            }
+            for (int i = graph.inBegin(v); i < graph.inEnd(v); i++) {
+                if (cells[graph.inSource(i)] != cell) {
+                    boundary.add(v);
+                    break;
+                }
+            }
+        }
+        return boundary.toArray();
+    }
+
+    private long bitCount() {
+        long count = 0;
+        for (long f : flags) {
+            count += Long.bitCount(f);
+        }
+        return count;
+    }
+
+    /**
+     * Splits the nodes at the coordinate median of the longer extent, in proportion to the cells left on both
+     * sides, until every part is a single cell numbered from {@code first}.
+     */
+    private void partition(int[] nodes, int first, int count) {
+
+        if (count == 1 || nodes.length <= 1) {
+            for (int v : nodes) {
+                cells[v] = first;
+            }
+            return;
+        }
+
+        int leftCells = count / 2;
+        int split = (int) ((long) nodes.length * leftCells / count);
+        GeometricBisection.split(graph, nodes, split);
+
+        int[] left = new int[split];
+        int[] right = new int[nodes.length - split];
+        System.arraycopy(nodes, 0, left, 0, split);
+        System.arraycopy(nodes, split, right, 0, right.length);
+        partition(left, first, leftCells);
+        partition(right, first + leftCells, count - leftCells);
+    }
+}
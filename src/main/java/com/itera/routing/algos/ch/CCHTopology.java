@@ -0,0 +1,389 @@
+package com.itera.routing.algos.ch;
+
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.GeometricBisection;
+import com.itera.routing.utils.IntList;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Metric-independent part of a customizable contraction hierarchy (CCH). The node order comes from a
+ * geometric nested dissection: nodes are recursively split at the coordinate median of the longer extent and
+ * the smaller boundary of the two halves becomes a separator ranked above both. Contracting in this order
+ * without witness searches gives a chordal supergraph of the undirected base graph, stored as the upward
+ * neighbour lists of every rank.
+ * <p>
+ * {@link #customize(double[])} applies a metric: every arc takes the minimum of its base edges and of all
+ * lower triangles. Ranks are processed level by level of the elimination tree, a rank only writes its own
+ * upward arcs, so customization runs in parallel without locks. The result is an ordinary {@link CHData}
+ * for the {@link CHQuery} engine.
+ */
+@Slf4j
+public class CCHTopology {
+
+    private static final int LEAF_SIZE = 8;
+    private static final String SHORTCUT_PREFIX = "cch:";
+
+    @Getter
+    private final CsrGraph graph;
+
+    /**
+     * rank → base graph node index
+     */
+    private final int[] order;
+
+    /**
+     * base graph node index → rank
+     */
+    private final int[] ranks;
+
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] arcOwners;
+
+    private final int[] lowOffsets;
+    private final int[] lowSources;
+    private final int[] lowArcs;
+
+    /**
+     * base edge → arc slot, {@code 2 * arc} for the upward direction and {@code 2 * arc + 1} for the downward one
+     */
+    private final int[] edgeSlots;
+
+    private final int[][] levels;
+
+    public CCHTopology(CsrGraph graph) {
+
+        long start = System.currentTimeMillis();
+        this.graph = graph;
+        int n = graph.getNodeCount();
+
+        IntList dissection = new IntList(n);
+        new Dissection(graph).dissect(IntStream.range(0, n).toArray(), dissection);
+        this.order = dissection.toArray();
+        this.ranks = new int[n];
+        for (int r = 0; r < n; r++) {
+            ranks[order[r]] = r;
+        }
+
+        IntList[] pending = new IntList[n];
+        for (int r = 0; r < n; r++) {
+            pending[r] = new IntList();
+        }
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.outBegin(v); e < graph.outEnd(v); e++) {
+                int a = ranks[v];
+                int b = ranks[graph.target(e)];
+                if (a != b) {
+                    pending[Math.min(a, b)].add(Math.max(a, b));
+                }
+            }
+        }
+
+        int[][] up = new int[n][];
+        for (int r = 0; r < n; r++) {
+            int[] neighbours = pending[r].toArray();
+            pending[r] = null;
+            Arrays.sort(neighbours);
+            int size = 0;
+            for (int i = 0; i < neighbours.length; i++) {
+                if (i == 0 || neighbours[i] != neighbours[i - 1]) {
+                    neighbours[size++] = neighbours[i];
+                }
+            }
+            up[r] = Arrays.copyOf(neighbours, size);
+            if (size > 1) {
+                pending[up[r][0]].addAll(up[r], 1, size);
+            }
+        }
+
+        this.upOffsets = new int[n + 1];
+        for (int r = 0; r < n; r++) {
+            upOffsets[r + 1] = upOffsets[r] + up[r].length;
+        }
+        int arcs = upOffsets[n];
+        this.upTargets = new int[arcs];
+        this.arcOwners = new int[arcs];
+        this.lowOffsets = new int[n + 1];
+        for (int r = 0; r < n; r++) {
+            System.arraycopy(up[r], 0, upTargets, upOffsets[r], up[r].length);
+            Arrays.fill(arcOwners, upOffsets[r], upOffsets[r + 1], r);
+            for (int target : up[r]) {
+                lowOffsets[target + 1]++;
+            }
+        }
+        for (int r = 0; r < n; r++) {
+            lowOffsets[r + 1] += lowOffsets[r];
+        }
+        this.lowSources = new int[arcs];
+        this.lowArcs = new int[arcs];
+        int[] fill = Arrays.copyOf(lowOffsets, n);
+        for (int a = 0; a < arcs; a++) {
+            int at = fill[upTargets[a]]++;
+            lowSources[at] = arcOwners[a];
+            lowArcs[at] = a;
+        }
+
+        this.edgeSlots = new int[graph.getEdgeCount()];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            for (int e = graph.outBegin(v); e < graph.outEnd(v); e++) {
+                int a = ranks[v];
+                int b = ranks[graph.target(e)];
+                edgeSlots[e] = a == b ? -1 : 2 * arc(Math.min(a, b), Math.max(a, b)) + (a < b ? 0 : 1);
+            }
+        });
+
+        int[] depths = new int[n];
+        int height = 0;
+        for (int r = 0; r < n; r++) {
+            for (int i = lowOffsets[r]; i < lowOffsets[r + 1]; i++) {
+                depths[r] = Math.max(depths[r], depths[lowSources[i]] + 1);
+            }
+            height = Math.max(height, depths[r] + 1);
+        }
+        int[] counts = new int[height];
+        for (int r = 0; r < n; r++) {
+            counts[depths[r]]++;
+        }
+        this.levels = new int[height][];
+        for (int l = 0; l < height; l++) {
+            levels[l] = new int[counts[l]];
+            counts[l] = 0;
+        }
+        for (int r = 0; r < n; r++) {
+            levels[depths[r]][counts[depths[r]]++] = r;
+        }
+
+        log.info(
+            "CCH topology in {} ms: {} arcs, {} levels",
+            System.currentTimeMillis() - start,
+            arcs,
+            height
+        );
+    }
+
+    public int getArcCount() {
+        return upTargets.length;
+    }
+
+    /**
+     * Customizes the hierarchy for the given weights, indexed by base edge. Infinite weights close edges.
+     */
+    public CHData customize(double[] weights) {
+
+        long start = System.currentTimeMillis();
+        int m = graph.getEdgeCount();
+        int slots = 2 * getArcCount();
+        double[] metric = new double[slots];
+        int[] edges = new int[slots];
+        int[] firstSlots = new int[slots];
+        int[] secondSlots = new int[slots];
+        Arrays.fill(metric, Double.POSITIVE_INFINITY);
+        Arrays.fill(edges, -1);
+        for (int e = 0; e < m; e++) {
+            int slot = edgeSlots[e];
+            if (slot >= 0 && weights[e] < metric[slot]) {
+                metric[slot] = weights[e];
+                edges[slot] = e;
+            }
+        }
+
+        for (int[] level : levels) {
+            Arrays.stream(level).parallel().forEach(x -> {
+                for (int i = lowOffsets[x]; i < lowOffsets[x + 1]; i++) {
+                    int v = lowSources[i];
+                    int vx = lowArcs[i];
+                    int xy = upOffsets[x];
+                    for (int vy = vx + 1; vy < upOffsets[v + 1]; vy++) {
+                        while (upTargets[xy] != upTargets[vy]) {
+                            xy++;
+                        }
+                        relax(metric, edges, firstSlots, secondSlots, 2 * xy, 2 * vx + 1, 2 * vy);
+                        relax(metric, edges, firstSlots, secondSlots, 2 * xy + 1, 2 * vy + 1, 2 * vx);
+                    }
+                }
+            });
+        }
+
+        int n = graph.getNodeCount();
+        int[] offsets = new int[n + 1];
+        for (int s = 0; s < slots; s++) {
+            if (edges[s] < 0 && metric[s] < Double.POSITIVE_INFINITY) {
+                offsets[source(s) + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] shortcuts = new int[offsets[n]];
+        for (int s = 0; s < slots; s++) {
+            if (edges[s] < 0 && metric[s] < Double.POSITIVE_INFINITY) {
+                shortcuts[offsets[source(s)]++] = s;
+            }
+        }
+
+        int[] combined = new int[slots];
+        for (int s = 0; s < slots; s++) {
+            combined[s] = edges[s];
+        }
+        for (int i = 0; i < shortcuts.length; i++) {
+            combined[shortcuts[i]] = m + i;
+        }
+
+        int count = shortcuts.length;
+        long[] from = new long[count];
+        long[] to = new long[count];
+        double[] shortcutWeights = new double[count];
+        String[] ids = new String[count];
+        int[] first = new int[count];
+        int[] second = new int[count];
+        for (int i = 0; i < count; i++) {
+            int s = shortcuts[i];
+            from[i] = graph.nodeId(source(s));
+            to[i] = graph.nodeId(target(s));
+            shortcutWeights[i] = metric[s];
+            ids[i] = SHORTCUT_PREFIX + i;
+            first[i] = combined[firstSlots[s]];
+            second[i] = combined[secondSlots[s]];
+        }
+
+        CsrGraph customized = graph.withWeights(weights);
+        CHData chData = new CHData(
+            customized,
+            customized.withEdges(from, to, shortcutWeights, ids),
+            IntBuffer.wrap(ranks),
+            IntBuffer.wrap(first),
+            IntBuffer.wrap(second)
+        );
+        log.info("CCH customized in {} ms: {} shortcuts", System.currentTimeMillis() - start, count);
+        return chData;
+    }
+
+    /**
+     * Base edge weights of the topology's graph, the metric to start customizations from.
+     */
+    public double[] getWeights() {
+        double[] weights = new double[graph.getEdgeCount()];
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] = graph.weight(e);
+        }
+        return weights;
+    }
+
+    private static void relax(
+        double[] metric,
+        int[] edges,
+        int[] firstSlots,
+        int[] secondSlots,
+        int slot,
+        int first,
+        int second
+    ) {
+        double weight = metric[first] + metric[second];
+        if (weight < metric[slot]) {
+            metric[slot] = weight;
+            edges[slot] = -1;
+            firstSlots[slot] = first;
+            secondSlots[slot] = second;
+        }
+    }
+
+    private int arc(int lower, int upper) {
+        return Arrays.binarySearch(upTargets, upOffsets[lower], upOffsets[lower + 1], upper);
+    }
+
+    private int source(int slot) {
+        int arc = slot >> 1;
+        return order[(slot & 1) == 0 ? arcOwners[arc] : upTargets[arc]];
+    }
+
+    private int target(int slot) {
+        int arc = slot >> 1;
+        return order[(slot & 1) == 0 ? upTargets[arc] : arcOwners[arc]];
+    }
+
+    /**
+     * Recursive coordinate bisection with vertex separators.
+     */
+    private static class Dissection {
+
+        private final CsrGraph graph;
+        private final int[] marks;
+        private int stamp;
+
+        Dissection(CsrGraph graph) {
+            this.graph = graph;
+            this.marks = new int[graph.getNodeCount()];
+        }
+
+        void dissect(int[] nodes, IntList order) {
+
+            if (nodes.length <= LEAF_SIZE) {
+                order.addAll(nodes, 0, nodes.length);
+                return;
+            }
+
+            int half = nodes.length / 2;
+            GeometricBisection.split(graph, nodes, half);
+
+            int left = ++stamp;
+            mark(nodes, 0, half, left);
+            IntList rightBoundary = boundary(nodes, half, nodes.length, left);
+            int right = ++stamp;
+            mark(nodes, half, nodes.length, right);
+            IntList leftBoundary = boundary(nodes, 0, half, right);
+
+            IntList separator = leftBoundary.size() <= rightBoundary.size() ? leftBoundary : rightBoundary;
+            int separated = ++stamp;
+            mark(separator.toArray(), 0, separator.size(), separated);
+
+            dissect(remaining(nodes, 0, half, separated), order);
+            dissect(remaining(nodes, half, nodes.length, separated), order);
+            order.addAll(separator.toArray(), 0, separator.size());
+        }
+
+        private void mark(int[] nodes, int from, int to, int mark) {
+            for (int i = from; i < to; i++) {
+                marks[nodes[i]] = mark;
+            }
+        }
+
+        private IntList boundary(int[] nodes, int from, int to, int opposite) {
+            IntList boundary = new IntList();
+            for (int i = from; i < to; i++) {
+                if (touches(nodes[i], opposite)) {
+                    boundary.add(nodes[i]);
+                }
+            }
+            return boundary;
+        }
+
+        private boolean touches(int v, int mark) {
+            for (int e = graph.outBegin(v); e < graph.outEnd(v); e++) {
+                if (marks[graph.target(e)] == mark) {
+                    return true;
+                }
+            }
+            for (int i = graph.inBegin(v); i < graph.inEnd(v); i++) {
+                if (marks[graph.inSource(i)] == mark) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int[] remaining(int[] nodes, int from, int to, int separated) {
+            IntList remaining = new IntList(to - from);
+            for (int i = from; i < to; i++) {
+                if (marks[nodes[i]] != separated) {
+                    remaining.add(nodes[i]);
+                }
+            }
+            return remaining.toArray();
+        }
+    }
+}
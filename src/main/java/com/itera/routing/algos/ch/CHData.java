@@ -1,45 +1,66 @@
 package com.itera.routing.algos.ch;
 
-import com.itera.routing.topology.Edge;
-import com.itera.routing.topology.Graph;
-import com.itera.routing.topology.Node;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IntList;
 import lombok.Data;
-import org.apache.commons.lang3.tuple.Pair;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Contraction hierarchy as an overlay of the shared base graph. Edges are addressed in a combined index
+ * space: base edges keep their index, shortcut {@code s} of the overlay has index {@code baseEdgeCount + s}.
+ */
 @Data
 public class CHData {
 
-    private final Graph graph;
-    private final Map<Node, Integer> hierarchies;
-    private final Map<Edge, Pair<Edge, Edge>> shortcuts;
+    private final CsrGraph graph;
+    private final CsrGraph shortcuts;
+    private final IntBuffer ranks;
+    private final IntBuffer shortcutFirst;
+    private final IntBuffer shortcutSecond;
 
-    public List<Edge> getOriginalEdges(List<Edge> shortcuts) {
-
-        List<Edge> result = new ArrayList<>();
-        for (Edge shortcut : shortcuts) {
-            List<Edge> path = decode(shortcut);
-            result.addAll(path);
-        }
+    public boolean isShortcut(int edge) {
+        return edge >= graph.getEdgeCount();
+    }
 
-        return result;
+    public String edgeId(int edge) {
+        return isShortcut(edge) ? shortcuts.edgeId(edge - graph.getEdgeCount()) : graph.edgeId(edge);
     }
 
-    List<Edge> decode(Edge edge) {
+    public List<Integer> getOriginalEdges(List<Integer> edges) {
 
-        Pair<Edge, Edge> definitions = shortcuts.get(edge);
-        if (definitions == null) {
-            return List.of(edge);
+        IntList result = new IntList();
+        IntList stack = new IntList();
+        for (int edge : edges) {
+            unpack(edge, result, stack);
         }
 
-        List<Edge> result = new ArrayList<>();
-        result.addAll(decode(definitions.getLeft()));
-        result.addAll(decode(definitions.getRight()));
+        List<Integer> original = new ArrayList<>(result.size());
+        for (int i = 0; i < result.size(); i++) {
+            original.add(result.get(i));
+        }
+        return original;
+    }
 
-        return result;
+    /**
+     * Appends the base edges the given edge stands for to {@code out}, in travel order. Shortcuts are expanded
+     * with an explicit stack through the flat {@code shortcutFirst}/{@code shortcutSecond} child index.
+     */
+    public void unpack(int edge, IntList out, IntList stack) {
 
+        int baseEdges = graph.getEdgeCount();
+        stack.clear();
+        stack.add(edge);
+        while (!stack.isEmpty()) {
+            int e = stack.pop();
+            if (e < baseEdges) {
+                out.add(e);
+            } else {
+                stack.add(shortcutSecond.get(e - baseEdges));
+                stack.add(shortcutFirst.get(e - baseEdges));
+            }
+        }
     }
 }
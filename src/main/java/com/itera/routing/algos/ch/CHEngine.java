@@ -0,0 +1,39 @@
+package com.itera.routing.algos.ch;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hierarchy currently served by CH queries. A new metric is prepared with {@link #prepare(CHData)} and
+ * published with {@link #publish(Hierarchy)}, which replaces the reference in one step; a query reads
+ * {@link #current()} once and finishes on that instance.
+ */
+@Slf4j
+public class CHEngine {
+
+    public record Hierarchy(CHQueryGraph queryGraph, ShortcutUnpacker unpacker) {
+    }
+
+    private final int unpackCacheSize;
+    private volatile Hierarchy current;
+
+    public CHEngine(CHQueryGraph queryGraph, ShortcutUnpacker unpacker, int unpackCacheSize) {
+        this.unpackCacheSize = unpackCacheSize;
+        this.current = new Hierarchy(queryGraph, unpacker);
+    }
+
+    public Hierarchy current() {
+        return current;
+    }
+
+    /**
+     * Builds the query graph and unpacker of a customized hierarchy without serving it yet.
+     */
+    public Hierarchy prepare(CHData chData) {
+        return new Hierarchy(new CHQueryGraph(chData), new ShortcutUnpacker(chData, unpackCacheSize));
+    }
+
+    public void publish(Hierarchy next) {
+        current = next;
+        log.info("CH hierarchy swapped");
+    }
+}
@@ -1,18 +1,17 @@
 package com.itera.routing.algos.ch;
 
-import com.itera.routing.loaders.CsvGraphLoader;
-import com.itera.routing.topology.Edge;
-import com.itera.routing.topology.Graph;
-import com.itera.routing.topology.Node;
+import com.itera.routing.topology.CsrGraph;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,38 +29,31 @@ public class CHLoader {
     @Value("${path.definitions}")
     private final String pathDefinitions;
 
-    private final CsvGraphLoader basicLoader;
-
-    public CHData load() throws Exception {
-
-        Graph graph = basicLoader.load();
-        Map<Node, Integer> hierarchies = new HashMap<>();
-        Map<Edge, Pair<Edge, Edge>> definitions = new HashMap<>();
+    public CHData load(CsrGraph graph) throws Exception {
 
+        CsrGraph shortcuts;
         try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(pathShortcuts)))) {
-            int shortcuts = in.readInt();
-            log.info("shortcuts: {}", shortcuts);
-
-            for (int i = 0; i < shortcuts; i++) {
-                String id = in.readUTF();
-                long fromId = in.readLong();
-                long toId = in.readLong();
-                double weight = in.readDouble();
+            int count = in.readInt();
+            log.info("shortcuts: {}", count);
+
+            long[] from = new long[count];
+            long[] to = new long[count];
+            double[] weights = new double[count];
+            String[] ids = new String[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = in.readUTF();
+                from[i] = in.readLong();
+                to[i] = in.readLong();
+                weights[i] = in.readDouble();
                 int maxSpeed = in.readInt();
 
-                log.debug("Shortcut [{}]: {} -> {} ({}m, {})", id, fromId, toId, weight, maxSpeed);
-                Node from = graph.getNode(fromId);
-                Node to = graph.getNode(toId);
-                Edge shortcut = new Edge(id, from, to, weight, maxSpeed);
-
-                from.getOutEdges().add(shortcut);
-                to.getInEdges().add(shortcut);
-                graph.getEdges().put(shortcut.getId(), shortcut);
-
+                log.debug("Shortcut [{}]: {} -> {} ({}m, {})", ids[i], from[i], to[i], weights[i], maxSpeed);
             }
-
+            shortcuts = graph.withEdges(from, to, weights, ids);
         }
 
+        int[] ranks = new int[graph.getNodeCount()];
+        Arrays.fill(ranks, -1);
         try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(pathHierarchies)))) {
 
             int levels = in.readInt();
@@ -72,11 +64,26 @@ public class CHLoader {
                 int level = in.readInt();
 
                 log.debug("Node [{}]: {}", nodeId, level);
-                hierarchies.put(graph.getNode(nodeId), level);
+                int node = graph.indexOf(nodeId);
+                if (node >= 0) {
+                    ranks[node] = level;
+                }
             }
 
         }
 
+        Map<String, Integer> edgeIndices = new HashMap<>();
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            edgeIndices.put(graph.edgeId(e), e);
+        }
+        for (int s = 0; s < shortcuts.getEdgeCount(); s++) {
+            edgeIndices.put(shortcuts.edgeId(s), graph.getEdgeCount() + s);
+        }
+
+        int[] shortcutFirst = new int[shortcuts.getEdgeCount()];
+        int[] shortcutSecond = new int[shortcuts.getEdgeCount()];
+        Arrays.fill(shortcutFirst, -1);
+        Arrays.fill(shortcutSecond, -1);
         try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(pathDefinitions)))) {
             int definitionsNum = in.readInt();
             log.info("definitions: {}", definitionsNum);
@@ -86,15 +93,35 @@ public class CHLoader {
                 String outEdgeId = in.readUTF();
 
                 log.debug("Definition [{}]: {} -> {}", id, inEdgeId, outEdgeId);
-                Edge shortcut = graph.getEdges().get(id);
-                Edge inEdge = graph.getEdges().get(inEdgeId);
-                Edge outEdge = graph.getEdges().get(outEdgeId);
-
-                definitions.put(shortcut, Pair.of(inEdge, outEdge));
+                Integer shortcut = edgeIndices.get(id);
+                Integer inEdge = edgeIndices.get(inEdgeId);
+                Integer outEdge = edgeIndices.get(outEdgeId);
+                if (shortcut == null || shortcut < graph.getEdgeCount()) {
+                    throw new IOException("Definition [%s] does not name a shortcut".formatted(id));
+                }
+                if (inEdge == null || outEdge == null) {
+                    throw new IOException(
+                        "Shortcut [%s] references unknown edges: %s -> %s".formatted(id, inEdgeId, outEdgeId)
+                    );
+                }
+
+                shortcutFirst[shortcut - graph.getEdgeCount()] = inEdge;
+                shortcutSecond[shortcut - graph.getEdgeCount()] = outEdge;
+            }
+        }
+        for (int s = 0; s < shortcuts.getEdgeCount(); s++) {
+            if (shortcutFirst[s] < 0) {
+                throw new IOException("Shortcut [%s] has no definition".formatted(shortcuts.edgeId(s)));
             }
         }
 
-        return new CHData(graph, hierarchies, definitions);
+        return new CHData(
+            graph,
+            shortcuts,
+            IntBuffer.wrap(ranks),
+            IntBuffer.wrap(shortcutFirst),
+            IntBuffer.wrap(shortcutSecond)
+        );
 
     }
 
@@ -0,0 +1,173 @@
+package com.itera.routing.algos.ch;
+
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.SearchWorkspacePool;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import com.itera.routing.utils.IntList;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+
+/**
+ * Distance matrix between sources and targets on a {@link CHQueryGraph} with buckets. A backward upward
+ * search from every target drops (target, distance) into the bucket of each node it settles; a forward
+ * upward search from every source then scans the buckets of the nodes it settles. Every shortest path has a
+ * highest node that both searches settle with their exact distances, so the minimum over the scanned entries
+ * is the distance. Stalled nodes carry too long distances and neither fill nor scan buckets.
+ * <p>
+ * Buckets are stored by rank position in one flat array. Target searches and source searches are each split
+ * into up to {@code parallelism} contiguous chunks that run on the given executor, with workspaces borrowed
+ * from the pool on the worker threads. The calling thread only waits for the chunks, so it must not be one of
+ * the executor's threads.
+ */
+@RequiredArgsConstructor
+public class CHManyToMany {
+
+    private final CHQueryGraph graph;
+
+    /**
+     * Distances indexed by {@code [source][target]} between base graph node indices;
+     * {@link Double#POSITIVE_INFINITY} for unreachable pairs.
+     */
+    public double[][] distances(
+        int[] sources,
+        int[] targets,
+        SearchWorkspacePool workspaces,
+        Executor executor,
+        int parallelism
+    ) {
+
+        int n = graph.getNodeCount();
+        IntList[] settled = new IntList[targets.length];
+        double[][] settledDistances = new double[targets.length][];
+        forEach(targets.length, executor, parallelism, t -> {
+            try (SearchWorkspace workspace = workspaces.borrow()) {
+                IntList nodes = new IntList();
+                upward(graph.getPositions()[targets[t]], false, workspace, nodes);
+                double[] distances = new double[nodes.size()];
+                for (int i = 0; i < nodes.size(); i++) {
+                    distances[i] = workspace.getDistance(nodes.get(i));
+                }
+                settled[t] = nodes;
+                settledDistances[t] = distances;
+            }
+        });
+
+        int[] offsets = new int[n + 1];
+        for (IntList nodes : settled) {
+            for (int i = 0; i < nodes.size(); i++) {
+                offsets[nodes.get(i) + 1]++;
+            }
+        }
+        Arrays.parallelPrefix(offsets, Integer::sum);
+        int[] bucketTargets = new int[offsets[n]];
+        double[] bucketDistances = new double[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int t = 0; t < targets.length; t++) {
+            for (int i = 0; i < settled[t].size(); i++) {
+                int slot = fill[settled[t].get(i)]++;
+                bucketTargets[slot] = t;
+                bucketDistances[slot] = settledDistances[t][i];
+            }
+        }
+
+        double[][] matrix = new double[sources.length][];
+        forEach(sources.length, executor, parallelism, s -> {
+            try (SearchWorkspace workspace = workspaces.borrow()) {
+                IntList nodes = new IntList();
+                upward(graph.getPositions()[sources[s]], true, workspace, nodes);
+                double[] row = new double[targets.length];
+                Arrays.fill(row, Double.POSITIVE_INFINITY);
+                for (int i = 0; i < nodes.size(); i++) {
+                    int u = nodes.get(i);
+                    double distance = workspace.getDistance(u);
+                    for (int b = offsets[u]; b < offsets[u + 1]; b++) {
+                        int t = bucketTargets[b];
+                        row[t] = Math.min(row[t], distance + bucketDistances[b]);
+                    }
+                }
+                matrix[s] = row;
+            }
+        });
+        return matrix;
+    }
+
+    /**
+     * Runs the action for {@code 0..count-1} in contiguous chunks on the executor and waits for all of them;
+     * an exception of a chunk, or a rejection by the executor, is rethrown.
+     */
+    private static void forEach(int count, Executor executor, int parallelism, IntConsumer action) {
+        int chunks = Math.max(1, Math.min(parallelism, count));
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[chunks];
+        for (int c = 0; c < chunks; c++) {
+            int begin = (int) ((long) count * c / chunks);
+            int end = (int) ((long) count * (c + 1) / chunks);
+            futures[c] = CompletableFuture.runAsync(() -> {
+                for (int i = begin; i < end; i++) {
+                    action.accept(i);
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Upward search with stalling; collects the positions that were settled and not stalled.
+     */
+    private void upward(int origin, boolean forward, SearchWorkspace workspace, IntList nodes) {
+        int[] offsets = forward ? graph.getUpOffsets() : graph.getDownOffsets();
+        int[] neighbours = forward ? graph.getUpTargets() : graph.getDownSources();
+        double[] weights = forward ? graph.getUpWeights() : graph.getDownWeights();
+        int[] stallOffsets = forward ? graph.getDownOffsets() : graph.getUpOffsets();
+        int[] stallNeighbours = forward ? graph.getDownSources() : graph.getUpTargets();
+        double[] stallWeights = forward ? graph.getDownWeights() : graph.getUpWeights();
+
+        IndexedPriorityQueue candidates = workspace.getCandidates();
+        workspace.update(origin, 0.0, -1, -1);
+        candidates.update(origin, 0.0);
+        int u;
+        while ((u = candidates.extractMin()) >= 0) {
+            workspace.settle(u);
+            double distance = workspace.getDistance(u);
+            if (isStalled(u, distance, stallOffsets, stallNeighbours, stallWeights, workspace)) {
+                continue;
+            }
+            nodes.add(u);
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int w = neighbours[i];
+                double d = distance + weights[i];
+                if (d < workspace.getDistance(w)) {
+                    workspace.update(w, d, u, -1);
+                    candidates.update(w, d);
+                }
+            }
+        }
+    }
+
+    private static boolean isStalled(
+        int u,
+        double distance,
+        int[] offsets,
+        int[] neighbours,
+        double[] weights,
+        SearchWorkspace workspace
+    ) {
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            if (workspace.getDistance(neighbours[i]) + weights[i] < distance) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
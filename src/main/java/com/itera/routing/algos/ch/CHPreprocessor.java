@@ -0,0 +1,425 @@
+package com.itera.routing.algos.ch;
+
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedDaryHeap;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a contraction hierarchy of a {@link CsrGraph}.
+ * <p>
+ * Node priority is {@code 2 * edge difference + deleted neighbours}, where the edge difference comes from a
+ * simulated contraction. Every round contracts the independent set of nodes whose priority is smaller than
+ * that of all their remaining neighbours: witness searches of the whole set run in parallel, then the
+ * shortcuts are applied in node order, and only the neighbours of contracted nodes get their priority
+ * recomputed (lazy updates). Witness searches are limited in settled nodes and hops; a missed witness only
+ * costs an extra shortcut.
+ * <p>
+ * The result does not depend on thread scheduling: ranks follow the contraction order and shortcut ids are
+ * assigned after sorting the shortcuts by source node and creation order.
+ */
+@Slf4j
+public class CHPreprocessor {
+
+    private static final int EDGE_DIFFERENCE_WEIGHT = 2;
+    private static final int DELETED_NEIGHBOURS_WEIGHT = 1;
+    private static final String SHORTCUT_PREFIX = "ch:";
+
+    private final CsrGraph graph;
+    private final int n;
+    private final int m;
+
+    @Getter
+    @Setter
+    private int settleLimit = 500;
+
+    @Getter
+    @Setter
+    private int hopLimit = 5;
+
+    private Adjacency[] out;
+    private Adjacency[] in;
+    private boolean[] contracted;
+    private boolean[] inRound;
+    private int[] deletedNeighbours;
+    private int[] priorities;
+    private int[] ranks;
+    private final List<Shortcut> shortcuts = new ArrayList<>();
+    private final ThreadLocal<Witness> witnesses;
+
+    private CHData result;
+    private String[] shortcutIds;
+
+    private record Shortcut(int from, int to, double weight, int first, int second) {
+    }
+
+    public CHPreprocessor(CsrGraph graph) {
+        this.graph = graph;
+        this.n = graph.getNodeCount();
+        this.m = graph.getEdgeCount();
+        this.witnesses = ThreadLocal.withInitial(() -> new Witness(n));
+    }
+
+    public CHData build() {
+
+        long start = System.currentTimeMillis();
+        out = new Adjacency[n];
+        in = new Adjacency[n];
+        contracted = new boolean[n];
+        inRound = new boolean[n];
+        deletedNeighbours = new int[n];
+        priorities = new int[n];
+        ranks = new int[n];
+        shortcuts.clear();
+
+        for (int v = 0; v < n; v++) {
+            out[v] = new Adjacency();
+            in[v] = new Adjacency();
+        }
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.outBegin(v); e < graph.outEnd(v); e++) {
+                int w = graph.target(e);
+                if (w != v && out[v].add(w, graph.weight(e), e)) {
+                    in[w].add(v, graph.weight(e), e);
+                }
+            }
+        }
+
+        IntStream.range(0, n).parallel().forEach(v -> priorities[v] = priority(v));
+
+        int[] remaining = IntStream.range(0, n).toArray();
+        int rank = 0;
+        int round = 0;
+        boolean[] affected = new boolean[n];
+        while (remaining.length > 0) {
+
+            int[] independent = Arrays.stream(remaining).parallel().filter(this::isLocalMinimum).toArray();
+            for (int v : independent) {
+                inRound[v] = true;
+            }
+
+            List<List<Shortcut>> found = Arrays.stream(independent).parallel()
+                .mapToObj(v -> contraction(v, witnesses.get()))
+                .toList();
+
+            for (int i = 0; i < independent.length; i++) {
+                int v = independent[i];
+                ranks[v] = rank++;
+                for (Shortcut shortcut : found.get(i)) {
+                    int edge = m + shortcuts.size();
+                    if (out[shortcut.from()].add(shortcut.to(), shortcut.weight(), edge)) {
+                        in[shortcut.to()].add(shortcut.from(), shortcut.weight(), edge);
+                        shortcuts.add(shortcut);
+                    }
+                }
+                for (int j = 0; j < in[v].size; j++) {
+                    int u = in[v].nodes[j];
+                    out[u].remove(v);
+                    deletedNeighbours[u]++;
+                    affected[u] = true;
+                }
+                for (int j = 0; j < out[v].size; j++) {
+                    int w = out[v].nodes[j];
+                    in[w].remove(v);
+                    deletedNeighbours[w]++;
+                    affected[w] = true;
+                }
+                contracted[v] = true;
+                inRound[v] = false;
+                out[v] = null;
+                in[v] = null;
+            }
+
+            remaining = Arrays.stream(remaining).filter(v -> !contracted[v]).toArray();
+            int[] update = Arrays.stream(remaining).filter(v -> affected[v]).toArray();
+            for (int v : update) {
+                affected[v] = false;
+            }
+            Arrays.stream(update).parallel().forEach(v -> priorities[v] = priority(v));
+
+            if (++round % 10 == 0 || remaining.length == 0) {
+                log.info("CH round {}: {} nodes left, {} shortcuts", round, remaining.length, shortcuts.size());
+            }
+        }
+
+        out = null;
+        in = null;
+        result = overlay();
+        log.info(
+            "CH built in {} ms: {} rounds, {} shortcuts",
+            System.currentTimeMillis() - start,
+            round,
+            result.getShortcuts().getEdgeCount()
+        );
+        return result;
+    }
+
+    /**
+     * Writes the last built hierarchy in the formats read by {@link CHLoader}.
+     */
+    public void write(String pathShortcuts, String pathHierarchy, String pathDefinitions) throws IOException {
+
+        CsrGraph overlay = result.getShortcuts();
+        try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pathShortcuts)))) {
+            out.writeInt(overlay.getEdgeCount());
+            for (int v = 0; v < n; v++) {
+                for (int s = overlay.outBegin(v); s < overlay.outEnd(v); s++) {
+                    out.writeUTF(shortcutIds[s]);
+                    out.writeLong(graph.nodeId(v));
+                    out.writeLong(graph.nodeId(overlay.target(s)));
+                    out.writeDouble(overlay.weight(s));
+                    out.writeInt(0);
+                }
+            }
+        }
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pathHierarchy)))) {
+            out.writeInt(n);
+            for (int v = 0; v < n; v++) {
+                out.writeLong(graph.nodeId(v));
+                out.writeInt(result.getRanks().get(v));
+            }
+        }
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pathDefinitions)))) {
+            out.writeInt(overlay.getEdgeCount());
+            for (int s = 0; s < overlay.getEdgeCount(); s++) {
+                out.writeUTF(shortcutIds[s]);
+                out.writeUTF(edgeId(result.getShortcutFirst().get(s)));
+                out.writeUTF(edgeId(result.getShortcutSecond().get(s)));
+            }
+        }
+
+        log.info("CH written to {}, {}, {}", pathShortcuts, pathHierarchy, pathDefinitions);
+    }
+
+    private String edgeId(int edge) {
+        return edge < m ? graph.edgeId(edge) : shortcutIds[edge - m];
+    }
+
+    private boolean isLocalMinimum(int v) {
+        for (int j = 0; j < out[v].size; j++) {
+            if (precedes(out[v].nodes[j], v)) {
+                return false;
+            }
+        }
+        for (int j = 0; j < in[v].size; j++) {
+            if (precedes(in[v].nodes[j], v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean precedes(int u, int v) {
+        return priorities[u] < priorities[v] || (priorities[u] == priorities[v] && u < v);
+    }
+
+    private int priority(int v) {
+        int edgeDifference = contraction(v, witnesses.get()).size() - out[v].size - in[v].size;
+        return EDGE_DIFFERENCE_WEIGHT * edgeDifference + DELETED_NEIGHBOURS_WEIGHT * deletedNeighbours[v];
+    }
+
+    /**
+     * Shortcuts needed to contract v. Witness paths avoid v and all nodes contracted in the current round.
+     */
+    private List<Shortcut> contraction(int v, Witness witness) {
+
+        List<Shortcut> needed = new ArrayList<>();
+        Adjacency outgoing = out[v];
+        Adjacency incoming = in[v];
+        for (int i = 0; i < incoming.size; i++) {
+            int u = incoming.nodes[i];
+            double toV = incoming.weights[i];
+
+            double maxVia = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < outgoing.size; j++) {
+                if (outgoing.nodes[j] != u) {
+                    maxVia = Math.max(maxVia, toV + outgoing.weights[j]);
+                }
+            }
+            if (maxVia == Double.NEGATIVE_INFINITY) {
+                continue;
+            }
+
+            witness.run(u, v, maxVia, outgoing);
+            for (int j = 0; j < outgoing.size; j++) {
+                int w = outgoing.nodes[j];
+                double via = toV + outgoing.weights[j];
+                if (w != u && witness.distance(w) > via) {
+                    needed.add(new Shortcut(u, w, via, incoming.edges[i], outgoing.edges[j]));
+                }
+            }
+        }
+        return needed;
+    }
+
+    private CHData overlay() {
+
+        int count = shortcuts.size();
+        Integer[] sorted = new Integer[count];
+        Arrays.setAll(sorted, c -> c);
+        Arrays.sort(sorted, Comparator.comparingInt((Integer c) -> shortcuts.get(c).from()).thenComparingInt(c -> c));
+        int[] finalIndex = new int[count];
+        for (int f = 0; f < count; f++) {
+            finalIndex[sorted[f]] = f;
+        }
+
+        long[] from = new long[count];
+        long[] to = new long[count];
+        double[] weights = new double[count];
+        int[] first = new int[count];
+        int[] second = new int[count];
+        shortcutIds = new String[count];
+        for (int f = 0; f < count; f++) {
+            Shortcut shortcut = shortcuts.get(sorted[f]);
+            from[f] = graph.nodeId(shortcut.from());
+            to[f] = graph.nodeId(shortcut.to());
+            weights[f] = shortcut.weight();
+            first[f] = shortcut.first() < m ? shortcut.first() : m + finalIndex[shortcut.first() - m];
+            second[f] = shortcut.second() < m ? shortcut.second() : m + finalIndex[shortcut.second() - m];
+            shortcutIds[f] = SHORTCUT_PREFIX + f;
+        }
+
+        CsrGraph overlay = graph.withEdges(from, to, weights, shortcutIds);
+        return new CHData(graph, overlay, IntBuffer.wrap(ranks), IntBuffer.wrap(first), IntBuffer.wrap(second));
+    }
+
+    /**
+     * Remaining neighbours of a node during contraction, at most one edge per neighbour.
+     */
+    private static class Adjacency {
+
+        int[] nodes = new int[4];
+        double[] weights = new double[4];
+        int[] edges = new int[4];
+        int size;
+
+        /**
+         * Adds the edge unless an edge to the same node is at least as short; replaces a longer one.
+         */
+        boolean add(int node, double weight, int edge) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    if (weights[i] <= weight) {
+                        return false;
+                    }
+                    weights[i] = weight;
+                    edges[i] = edge;
+                    return true;
+                }
+            }
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                edges = Arrays.copyOf(edges, size * 2);
+            }
+            nodes[size] = node;
+            weights[size] = weight;
+            edges[size] = edge;
+            size++;
+            return true;
+        }
+
+        void remove(int node) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    size--;
+                    System.arraycopy(nodes, i + 1, nodes, i, size - i);
+                    System.arraycopy(weights, i + 1, weights, i, size - i);
+                    System.arraycopy(edges, i + 1, edges, i, size - i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Settle- and hop-limited Dijkstra on the remaining graph, one per thread. It stops early once all targets
+     * are settled.
+     */
+    private class Witness {
+
+        private final int[] stamps;
+        private final int[] targetStamps;
+        private final double[] distances;
+        private final int[] hops;
+        private final IndexedDaryHeap candidates;
+        private int generation;
+
+        Witness(int capacity) {
+            this.stamps = new int[capacity];
+            this.targetStamps = new int[capacity];
+            this.distances = new double[capacity];
+            this.hops = new int[capacity];
+            this.candidates = new IndexedDaryHeap(capacity);
+        }
+
+        double distance(int node) {
+            return stamps[node] == generation ? distances[node] : Double.POSITIVE_INFINITY;
+        }
+
+        void run(int source, int excluded, double maxDistance, Adjacency targets) {
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                Arrays.fill(targetStamps, 0);
+                generation = 1;
+            }
+            int open = 0;
+            for (int j = 0; j < targets.size; j++) {
+                int target = targets.nodes[j];
+                if (target != source && targetStamps[target] != generation) {
+                    targetStamps[target] = generation;
+                    open++;
+                }
+            }
+
+            candidates.clear();
+            stamps[source] = generation;
+            distances[source] = 0.0;
+            hops[source] = 0;
+            candidates.update(source, 0.0);
+
+            int settled = 0;
+            while (!candidates.isEmpty() && settled++ < settleLimit) {
+                double d = candidates.getMinKey();
+                int node = candidates.extractMin();
+                if (d > maxDistance) {
+                    break;
+                }
+                if (targetStamps[node] == generation && --open == 0) {
+                    break;
+                }
+                if (hops[node] >= hopLimit) {
+                    continue;
+                }
+                Adjacency adjacency = out[node];
+                for (int j = 0; j < adjacency.size; j++) {
+                    int w = adjacency.nodes[j];
+                    if (w == excluded || inRound[w]) {
+                        continue;
+                    }
+                    double nd = d + adjacency.weights[j];
+                    if (nd < distance(w)) {
+                        stamps[w] = generation;
+                        distances[w] = nd;
+                        hops[w] = hops[node] + 1;
+                        candidates.update(w, nd);
+                    }
+                }
+            }
+        }
+    }
+}
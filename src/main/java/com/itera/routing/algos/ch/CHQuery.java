@@ -0,0 +1,197 @@
+package com.itera.routing.algos.ch;
+
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import com.itera.routing.utils.IntList;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bidirectional CH query over a {@link CHQueryGraph}. Both searches only go up; a side stops once its queue
+ * minimum reaches the best meeting distance. A settled node is stalled, i.e. not expanded, when a higher
+ * neighbour already reaches it on a shorter path, because its tentative distance cannot be the shortest one.
+ * Workspaces are indexed by rank position.
+ */
+@Slf4j
+public class CHQuery {
+
+    private final CHQueryGraph graph;
+    private final ShortcutUnpacker unpacker;
+    private final SearchWorkspace fwd;
+    private final SearchWorkspace bckg;
+
+    @Getter
+    private double best;
+
+    @Getter
+    private int meeting;
+
+    @Getter
+    private int visitedCount;
+
+    @Getter
+    private int stalledCount;
+
+    private int origin;
+
+    public CHQuery(CHQueryGraph graph, ShortcutUnpacker unpacker, SearchWorkspace fwd, SearchWorkspace bckg) {
+        this.graph = graph;
+        this.unpacker = unpacker;
+        this.fwd = fwd;
+        this.bckg = bckg;
+    }
+
+    /**
+     * Runs the query between base graph node indices and returns the distance.
+     */
+    public double route(int from, int to) {
+        fwd.reset();
+        bckg.reset();
+        best = Double.POSITIVE_INFINITY;
+        meeting = -1;
+        visitedCount = 0;
+        stalledCount = 0;
+        origin = from;
+
+        int s = graph.getPositions()[from];
+        int t = graph.getPositions()[to];
+        fwd.update(s, 0.0, -1, -1);
+        fwd.getCandidates().update(s, 0.0);
+        bckg.update(t, 0.0, -1, -1);
+        bckg.getCandidates().update(t, 0.0);
+
+        IndexedPriorityQueue forward = fwd.getCandidates();
+        IndexedPriorityQueue backward = bckg.getCandidates();
+        while (true) {
+            double topF = forward.getMinKey();
+            double topB = backward.getMinKey();
+            boolean forwardDone = topF >= best;
+            boolean backwardDone = topB >= best;
+            if (forwardDone && backwardDone) {
+                break;
+            }
+            if (!forwardDone && (backwardDone || topF <= topB)) {
+                stepForward();
+            } else {
+                stepBackward();
+            }
+        }
+
+        return best;
+    }
+
+    public ShortestPath findShortestPath(int from, int to) {
+        route(from, to);
+        log.info("CH visited: {}, stalled: {}", visitedCount, stalledCount);
+        return shortestPath();
+    }
+
+    /**
+     * Combined CH edge indices of the last route, in travel order; empty if the target is unreachable.
+     */
+    public List<Integer> pathEdges() {
+        List<Integer> edges = new ArrayList<>();
+        if (meeting < 0) {
+            return edges;
+        }
+        for (int p = meeting; fwd.getParentEdge(p) >= 0; p = fwd.getParent(p)) {
+            edges.add(fwd.getParentEdge(p));
+        }
+        Collections.reverse(edges);
+        for (int p = meeting; bckg.getParentEdge(p) >= 0; p = bckg.getParent(p)) {
+            edges.add(bckg.getParentEdge(p));
+        }
+        return edges;
+    }
+
+    /**
+     * Path of the last route with shortcuts unpacked into base edges.
+     */
+    private ShortestPath shortestPath() {
+        CsrGraph base = graph.getChData().getGraph();
+
+        ShortestPath sp = new ShortestPath();
+        sp.setLength(meeting >= 0 ? best : Double.MAX_VALUE);
+        sp.setEdges(new ArrayList<>());
+        sp.setNodes(new ArrayList<>());
+        if (meeting < 0) {
+            return sp;
+        }
+
+        IntList edges = unpacker.unpack(pathEdges());
+        sp.getNodes().add(base.nodeId(origin));
+        for (int i = 0; i < edges.size(); i++) {
+            int edge = edges.get(i);
+            sp.getEdges().add(base.edgeId(edge));
+            sp.getNodes().add(base.nodeId(base.target(edge)));
+        }
+        return sp;
+    }
+
+    private void stepForward() {
+        int u = fwd.getCandidates().extractMin();
+        fwd.settle(u);
+        visitedCount++;
+
+        double distance = fwd.getDistance(u);
+        meet(u, distance + bckg.getDistance(u));
+
+        int[] offsets = graph.getDownOffsets();
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            if (fwd.getDistance(graph.getDownSources()[i]) + graph.getDownWeights()[i] < distance) {
+                stalledCount++;
+                return;
+            }
+        }
+
+        offsets = graph.getUpOffsets();
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            int w = graph.getUpTargets()[i];
+            double d = distance + graph.getUpWeights()[i];
+            if (d < fwd.getDistance(w)) {
+                fwd.update(w, d, u, graph.getUpEdges()[i]);
+                fwd.getCandidates().update(w, d);
+            }
+        }
+    }
+
+    private void stepBackward() {
+        int u = bckg.getCandidates().extractMin();
+        bckg.settle(u);
+        visitedCount++;
+
+        double distance = bckg.getDistance(u);
+        meet(u, distance + fwd.getDistance(u));
+
+        int[] offsets = graph.getUpOffsets();
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            if (bckg.getDistance(graph.getUpTargets()[i]) + graph.getUpWeights()[i] < distance) {
+                stalledCount++;
+                return;
+            }
+        }
+
+        offsets = graph.getDownOffsets();
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            int w = graph.getDownSources()[i];
+            double d = distance + graph.getDownWeights()[i];
+            if (d < bckg.getDistance(w)) {
+                bckg.update(w, d, u, graph.getDownEdges()[i]);
+                bckg.getCandidates().update(w, d);
+            }
+        }
+    }
+
+    private void meet(int node, double distance) {
+        if (distance < best) {
+            best = distance;
+            meeting = node;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.itera.routing.algos.ch;
+
+import com.itera.routing.topology.CsrGraph;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Search graph of a contraction hierarchy. Nodes are renumbered by rank (position 0 is the least important
+ * node) and every base edge or shortcut is stored once, at its lower endpoint: in the upward-forward
+ * adjacency if it leads up, in the upward-backward adjacency if it comes down. A CH query therefore never
+ * inspects an edge it would reject, and the adjacency of the opposite direction doubles as the stall check.
+ * Edges keep their combined {@link CHData} index.
+ */
+@Slf4j
+@Getter
+public class CHQueryGraph {
+
+    private final CHData chData;
+
+    /**
+     * position → base graph node index
+     */
+    private final int[] order;
+
+    /**
+     * base graph node index → position
+     */
+    private final int[] positions;
+
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] upEdges;
+
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final double[] downWeights;
+    private final int[] downEdges;
+
+    public CHQueryGraph(CHData chData) {
+
+        this.chData = chData;
+        CsrGraph graph = chData.getGraph();
+        CsrGraph shortcuts = chData.getShortcuts();
+        int n = graph.getNodeCount();
+
+        Integer[] sorted = new Integer[n];
+        Arrays.setAll(sorted, v -> v);
+        Arrays.parallelSort(sorted, (a, b) -> {
+            int cmp = Integer.compare(chData.getRanks().get(a), chData.getRanks().get(b));
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        });
+        this.order = new int[n];
+        this.positions = new int[n];
+        for (int p = 0; p < n; p++) {
+            order[p] = sorted[p];
+            positions[sorted[p]] = p;
+        }
+
+        this.upOffsets = new int[n + 1];
+        this.downOffsets = new int[n + 1];
+        IntStream.range(0, n).parallel().forEach(p -> {
+            int v = order[p];
+            upOffsets[p + 1] = countUp(graph, v) + countUp(shortcuts, v);
+            downOffsets[p + 1] = countDown(graph, v) + countDown(shortcuts, v);
+        });
+        Arrays.parallelPrefix(upOffsets, Integer::sum);
+        Arrays.parallelPrefix(downOffsets, Integer::sum);
+
+        this.upTargets = new int[upOffsets[n]];
+        this.upWeights = new double[upOffsets[n]];
+        this.upEdges = new int[upOffsets[n]];
+        this.downSources = new int[downOffsets[n]];
+        this.downWeights = new double[downOffsets[n]];
+        this.downEdges = new int[downOffsets[n]];
+        IntStream.range(0, n).parallel().forEach(p -> {
+            int v = order[p];
+            int up = fillUp(graph, v, 0, upOffsets[p]);
+            fillUp(shortcuts, v, graph.getEdgeCount(), up);
+            int down = fillDown(graph, v, 0, downOffsets[p]);
+            fillDown(shortcuts, v, graph.getEdgeCount(), down);
+        });
+
+        log.info("CH query graph: {} upward, {} downward edges", upTargets.length, downSources.length);
+    }
+
+    public int getNodeCount() {
+        return order.length;
+    }
+
+    private int countUp(CsrGraph g, int v) {
+        int count = 0;
+        for (int e = g.outBegin(v); e < g.outEnd(v); e++) {
+            if (positions[g.target(e)] > positions[v]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int countDown(CsrGraph g, int v) {
+        int count = 0;
+        for (int i = g.inBegin(v); i < g.inEnd(v); i++) {
+            if (positions[g.inSource(i)] > positions[v]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int fillUp(CsrGraph g, int v, int edgeOffset, int at) {
+        for (int e = g.outBegin(v); e < g.outEnd(v); e++) {
+            if (positions[g.target(e)] > positions[v]) {
+                upTargets[at] = positions[g.target(e)];
+                upWeights[at] = g.weight(e);
+                upEdges[at] = edgeOffset + e;
+                at++;
+            }
+        }
+        return at;
+    }
+
+    private int fillDown(CsrGraph g, int v, int edgeOffset, int at) {
+        for (int i = g.inBegin(v); i < g.inEnd(v); i++) {
+            if (positions[g.inSource(i)] > positions[v]) {
+                downSources[at] = positions[g.inSource(i)];
+                downWeights[at] = g.inWeight(i);
+                downEdges[at] = edgeOffset + g.inEdge(i);
+                at++;
+            }
+        }
+        return at;
+    }
+}
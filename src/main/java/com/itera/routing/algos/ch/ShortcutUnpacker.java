@@ -0,0 +1,65 @@
+package com.itera.routing.algos.ch;
+
+import com.itera.routing.utils.IntList;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Expands CH paths into base edges. Expansions of long shortcuts can be kept in an optional bounded cache:
+ * a direct-mapped table of {@code cacheSize} slots, indexed by shortcut, where a newer expansion simply
+ * replaces the slot's previous one. The cache is lock-free and never grows.
+ */
+public class ShortcutUnpacker {
+
+    /**
+     * Shortcuts expanding to fewer base edges are cheaper to unpack than to look up.
+     */
+    static final int MIN_CACHED_EDGES = 16;
+
+    private record Expansion(int edge, int[] edges) {
+    }
+
+    @Getter
+    private final CHData chData;
+    private final AtomicReferenceArray<Expansion> cache;
+
+    public ShortcutUnpacker(CHData chData, int cacheSize) {
+        this.chData = chData;
+        this.cache = cacheSize > 0 ? new AtomicReferenceArray<>(cacheSize) : null;
+    }
+
+    /**
+     * Base edges of the given combined CH edges, in travel order.
+     */
+    public IntList unpack(List<Integer> edges) {
+        IntList out = new IntList(edges.size() * 4);
+        IntList stack = new IntList();
+        for (int edge : edges) {
+            unpack(edge, out, stack);
+        }
+        return out;
+    }
+
+    public void unpack(int edge, IntList out, IntList stack) {
+
+        if (cache == null || !chData.isShortcut(edge)) {
+            chData.unpack(edge, out, stack);
+            return;
+        }
+
+        int slot = (edge - chData.getGraph().getEdgeCount()) % cache.length();
+        Expansion cached = cache.get(slot);
+        if (cached != null && cached.edge() == edge) {
+            out.addAll(cached.edges(), 0, cached.edges().length);
+            return;
+        }
+
+        int start = out.size();
+        chData.unpack(edge, out, stack);
+        if (out.size() - start >= MIN_CACHED_EDGES) {
+            cache.set(slot, new Expansion(edge, out.toArray(start)));
+        }
+    }
+}
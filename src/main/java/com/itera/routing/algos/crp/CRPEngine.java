@@ -0,0 +1,40 @@
+package com.itera.routing.algos.crp;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * CRP metric currently served by queries. An update customizes the affected cells into a new
+ * {@link CRPMetric}, which {@link #publish(CRPMetric)} then puts in place of the reference in one step; a
+ * query reads {@link #current()} once and finishes on that instance.
+ */
+@Slf4j
+public class CRPEngine {
+
+    @Getter
+    private final CRPOverlay overlay;
+
+    private volatile CRPMetric current;
+
+    public CRPEngine(CRPOverlay overlay, double[] weights) {
+        this.overlay = overlay;
+        this.current = overlay.customize(weights);
+    }
+
+    public CRPMetric current() {
+        return current;
+    }
+
+    /**
+     * Recustomizes the cells of the changed edges on top of the current metric without serving the result
+     * yet; updates must be serialized.
+     */
+    public CRPMetric customize(double[] weights, int[] changedEdges) {
+        return overlay.customize(current, weights, changedEdges);
+    }
+
+    public void publish(CRPMetric next) {
+        current = next;
+        log.info("CRP metric swapped");
+    }
+}
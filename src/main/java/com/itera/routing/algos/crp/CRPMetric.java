@@ -0,0 +1,22 @@
+package com.itera.routing.algos.crp;
+
+import com.itera.routing.topology.CsrGraph;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One customization of a {@link CRPOverlay}: the weighted base graph and, per level, the row-major distance
+ * matrices between the boundary nodes of every cell. Unreachable pairs hold positive infinity. A metric is not
+ * modified once published.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CRPMetric {
+
+    private final CsrGraph graph;
+    private final double[][] matrices;
+
+    @Setter
+    private int customizedCells;
+}
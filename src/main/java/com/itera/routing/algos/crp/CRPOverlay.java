@@ -0,0 +1,316 @@
+package com.itera.routing.algos.crp;
+
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.SearchWorkspacePool;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.GeometricBisection;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import com.itera.routing.utils.IntList;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Metric-independent part of customizable route planning (CRP): a nested multilevel partition of the graph
+ * and the boundary nodes of every cell. The partition bisects the nodes at the coordinate median of the longer
+ * extent until the parts fit the cell size; every node keeps its leaf number and the cell of level {@code l}
+ * is the leaf number shifted right by {@link #getShifts()}{@code [l]}, so level 0 holds the smallest cells and
+ * every cell is a union of cells of the level below.
+ * <p>
+ * A node is a boundary node of a level when one of its edges leads to another cell of that level. The metric
+ * lives in {@link CRPMetric}: one distance matrix between the boundary nodes of every cell, computed by
+ * {@link #customize(double[])} from the base edges on level 0 and from the matrices and cut edges of the level
+ * below on higher levels. Cells of one level are independent, they are customized in parallel, every cell
+ * with a workspace borrowed from the pool on its worker thread.
+ */
+@Slf4j
+@Getter
+public class CRPOverlay {
+
+    /**
+     * parent edge of a search step over a clique arc of the given level
+     */
+    public static int cliqueArc(int level) {
+        return -2 - level;
+    }
+
+    public static int cliqueLevel(int parentEdge) {
+        return -2 - parentEdge;
+    }
+
+    private final CsrGraph graph;
+
+    private final SearchWorkspacePool workspaces;
+
+    private final int levelCount;
+
+    /**
+     * node index → leaf cell of the bisection
+     */
+    private final int[] leaves;
+
+    /**
+     * level → shift of the leaf number giving the cell of the level
+     */
+    private final int[] shifts;
+
+    /**
+     * level → cell → first boundary node of the cell, one more entry than cells
+     */
+    private final int[][] cellOffsets;
+
+    /**
+     * level → boundary nodes ordered by cell
+     */
+    private final int[][] boundaries;
+
+    /**
+     * level → node index → index of the node among the boundary nodes of its cell, -1 for inner nodes
+     */
+    private final int[][] localIndices;
+
+    /**
+     * level → cell → first entry of the cell's matrix, one more entry than cells
+     */
+    private final int[][] matrixOffsets;
+
+    public CRPOverlay(CsrGraph graph, int cellSize, int levelCount, SearchWorkspacePool workspaces) {
+
+        long start = System.currentTimeMillis();
+        this.graph = graph;
+        this.workspaces = workspaces;
+        int n = graph.getNodeCount();
+        int depth = 0;
+        while (depth < 30 && ((long) Math.max(1, cellSize) << depth) < n) {
+            depth++;
+        }
+        this.levelCount = Math.min(levelCount, depth);
+        this.leaves = new int[n];
+        bisect(IntStream.range(0, n).toArray(), depth, 0);
+
+        this.shifts = new int[this.levelCount];
+        this.cellOffsets = new int[this.levelCount][];
+        this.boundaries = new int[this.levelCount][];
+        this.localIndices = new int[this.levelCount][];
+        this.matrixOffsets = new int[this.levelCount][];
+        for (int level = 0; level < this.levelCount; level++) {
+            shifts[level] = level * depth / this.levelCount;
+            boundaries(level, 1 << (depth - shifts[level]));
+        }
+
+        log.info(
+            "CRP overlay built in {} ms: {} levels, {} cells and {} boundary nodes on the lowest level",
+            System.currentTimeMillis() - start,
+            this.levelCount,
+            this.levelCount > 0 ? getCellCount(0) : 0,
+            this.levelCount > 0 ? boundaries[0].length : 0
+        );
+    }
+
+    public int cell(int level, int node) {
+        return leaves[node] >>> shifts[level];
+    }
+
+    public int getCellCount(int level) {
+        return cellOffsets[level].length - 1;
+    }
+
+    public int boundarySize(int level, int cell) {
+        return cellOffsets[level][cell + 1] - cellOffsets[level][cell];
+    }
+
+    /**
+     * Customizes all cells of all levels.
+     */
+    public CRPMetric customize(double[] weights) {
+        CRPMetric metric = new CRPMetric(graph.withWeights(weights), new double[levelCount][]);
+        for (int level = 0; level < levelCount; level++) {
+            metric.getMatrices()[level] = new double[matrixOffsets[level][getCellCount(level)]];
+        }
+        boolean[][] dirty = new boolean[levelCount][];
+        for (int level = 0; level < levelCount; level++) {
+            dirty[level] = new boolean[getCellCount(level)];
+            Arrays.fill(dirty[level], true);
+        }
+        customize(metric, dirty);
+        return metric;
+    }
+
+    /**
+     * Customizes only the cells that contain a changed edge, on every level, and copies the matrices of all
+     * other cells from the previous metric.
+     */
+    public CRPMetric customize(CRPMetric previous, double[] weights, int[] changedEdges) {
+        CRPMetric metric = new CRPMetric(graph.withWeights(weights), new double[levelCount][]);
+        boolean[][] dirty = new boolean[levelCount][];
+        for (int level = 0; level < levelCount; level++) {
+            metric.getMatrices()[level] = previous.getMatrices()[level].clone();
+            dirty[level] = new boolean[getCellCount(level)];
+            for (int e : changedEdges) {
+                int cell = cell(level, graph.source(e));
+                if (cell == cell(level, graph.target(e))) {
+                    dirty[level][cell] = true;
+                }
+            }
+        }
+        customize(metric, dirty);
+        return metric;
+    }
+
+    private void customize(CRPMetric metric, boolean[][] dirty) {
+        long start = System.currentTimeMillis();
+        int cells = 0;
+        for (int level = 0; level < levelCount; level++) {
+            int l = level;
+            int[] customized = IntStream.range(0, getCellCount(level)).filter(c -> dirty[l][c]).toArray();
+            Arrays.stream(customized).parallel().forEach(c -> {
+                try (SearchWorkspace workspace = workspaces.borrow()) {
+                    customizeCell(l, c, metric, workspace);
+                }
+            });
+            cells += customized.length;
+        }
+        metric.setCustomizedCells(cells);
+        log.info("CRP customized {} cells in {} ms", cells, System.currentTimeMillis() - start);
+    }
+
+    private void customizeCell(int level, int cell, CRPMetric metric, SearchWorkspace workspace) {
+        int begin = cellOffsets[level][cell];
+        int size = boundarySize(level, cell);
+        double[] matrix = metric.getMatrices()[level];
+        int offset = matrixOffsets[level][cell];
+        for (int i = 0; i < size; i++) {
+            cellSearch(level, cell, boundaries[level][begin + i], -1, metric, workspace);
+            for (int j = 0; j < size; j++) {
+                matrix[offset + i * size + j] = workspace.getDistance(boundaries[level][begin + j]);
+            }
+        }
+    }
+
+    /**
+     * Dijkstra from a node inside one cell, until the target is settled or the cell is exhausted. Level 0
+     * searches the base edges of the cell; higher levels search the boundary nodes of the level below, over
+     * its matrices and the base edges between its cells. Parent edges are base edge indices or
+     * {@link #cliqueArc(int)} codes.
+     */
+    public void cellSearch(int level, int cell, int origin, int target, CRPMetric metric, SearchWorkspace workspace) {
+        workspace.reset();
+        IndexedPriorityQueue candidates = workspace.getCandidates();
+        workspace.update(origin, 0.0, -1, -1);
+        candidates.update(origin, 0.0);
+
+        CsrGraph weighted = metric.getGraph();
+        int u;
+        while ((u = candidates.extractMin()) >= 0) {
+            workspace.settle(u);
+            if (u == target) {
+                candidates.clear();
+                return;
+            }
+            double distance = workspace.getDistance(u);
+
+            if (level == 0) {
+                for (int e = weighted.outBegin(u); e < weighted.outEnd(u); e++) {
+                    int w = weighted.target(e);
+                    if (cell(0, w) == cell) {
+                        relax(workspace, w, distance + weighted.weight(e), u, e);
+                    }
+                }
+                continue;
+            }
+
+            int below = level - 1;
+            int subcell = cell(below, u);
+            int begin = cellOffsets[below][subcell];
+            int size = boundarySize(below, subcell);
+            double[] matrix = metric.getMatrices()[below];
+            int row = matrixOffsets[below][subcell] + localIndices[below][u] * size;
+            for (int j = 0; j < size; j++) {
+                relax(workspace, boundaries[below][begin + j], distance + matrix[row + j], u, cliqueArc(below));
+            }
+            for (int e = weighted.outBegin(u); e < weighted.outEnd(u); e++) {
+                int w = weighted.target(e);
+                if (cell(below, w) != subcell && cell(level, w) == cell) {
+                    relax(workspace, w, distance + weighted.weight(e), u, e);
+                }
+            }
+        }
+    }
+
+    private void relax(SearchWorkspace workspace, int node, double distance, int parent, int edge) {
+        if (!workspace.isSettled(node) && distance < workspace.getDistance(node)) {
+            workspace.update(node, distance, parent, edge);
+            workspace.getCandidates().update(node, distance);
+        }
+    }
+
+    private void boundaries(int level, int cellCount) {
+        int n = graph.getNodeCount();
+        IntList[] byCell = new IntList[cellCount];
+        for (int c = 0; c < cellCount; c++) {
+            byCell[c] = new IntList();
+        }
+        for (int v = 0; v < n; v++) {
+            if (isBoundary(level, v)) {
+                byCell[cell(level, v)].add(v);
+            }
+        }
+
+        int[] offsets = new int[cellCount + 1];
+        int[] matrices = new int[cellCount + 1];
+        for (int c = 0; c < cellCount; c++) {
+            offsets[c + 1] = offsets[c] + byCell[c].size();
+            int size = byCell[c].size();
+            matrices[c + 1] = Math.addExact(matrices[c], Math.multiplyExact(size, size));
+        }
+        int[] nodes = new int[offsets[cellCount]];
+        int[] local = new int[n];
+        Arrays.fill(local, -1);
+        for (int c = 0; c < cellCount; c++) {
+            for (int i = 0; i < byCell[c].size(); i++) {
+                nodes[offsets[c] + i] = byCell[c].get(i);
+                local[byCell[c].get(i)] = i;
+            }
+        }
+        cellOffsets[level] = offsets;
+        boundaries[level] = nodes;
+        localIndices[level] = local;
+        matrixOffsets[level] = matrices;
+    }
+
+    private boolean isBoundary(int level, int v) {
+        int cell = cell(level, v);
+        for (int e = graph.outBegin(v); e < graph.outEnd(v); e++) {
+            if (cell(level, graph.target(e)) != cell) {
+                return true;
+            }
+        }
+        for (int i = graph.inBegin(v); i < graph.inEnd(v); i++) {
+            if (cell(level, graph.inSource(i)) != cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Halves the nodes at the coordinate median of the longer extent until {@code depth} levels are split;
+     * the leaf number collects the side taken at every split.
+     */
+    private void bisect(int[] nodes, int depth, int leaf) {
+
+        if (depth == 0) {
+            for (int v : nodes) {
+                leaves[v] = leaf;
+            }
+            return;
+        }
+
+        int half = nodes.length / 2;
+        GeometricBisection.split(graph, nodes, half);
+        bisect(Arrays.copyOfRange(nodes, 0, half), depth - 1, leaf << 1);
+        bisect(Arrays.copyOfRange(nodes, half, nodes.length), depth - 1, (leaf << 1) | 1);
+    }
+}
@@ -0,0 +1,257 @@
+package com.itera.routing.algos.crp;
+
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import com.itera.routing.utils.IntList;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+
+/**
+ * Bidirectional CRP query. The query level of a node is the highest level on which its cell contains neither
+ * the source nor the target, -1 inside the lowest-level cells of both. A node is scanned on its query level:
+ * the clique arcs of its cell there, and base edges that leave the cell of the tail's query level. Nodes
+ * in the source and target cells scan all their base edges. The backward search scans the reverse arcs, so
+ * both sides search the same overlay graph and meet like a bidirectional Dijkstra.
+ * <p>
+ * Clique arcs of the resulting path are unpacked by searches inside their cells, level by level down to base
+ * edges. Workspaces are indexed by node index.
+ */
+@Slf4j
+public class CRPQuery {
+
+    private final CRPOverlay overlay;
+    private final CRPMetric metric;
+    private final CsrGraph graph;
+    private final SearchWorkspace fwd;
+    private final SearchWorkspace bckg;
+
+    @Getter
+    private double best;
+
+    @Getter
+    private int meeting;
+
+    @Getter
+    private int visitedCount;
+
+    private int source;
+    private int target;
+
+    public CRPQuery(CRPOverlay overlay, CRPMetric metric, SearchWorkspace fwd, SearchWorkspace bckg) {
+        this.overlay = overlay;
+        this.metric = metric;
+        this.graph = metric.getGraph();
+        this.fwd = fwd;
+        this.bckg = bckg;
+    }
+
+    /**
+     * Runs the query between node indices and returns the distance.
+     */
+    public double route(int from, int to) {
+        fwd.reset();
+        bckg.reset();
+        best = Double.POSITIVE_INFINITY;
+        meeting = -1;
+        visitedCount = 0;
+        source = from;
+        target = to;
+
+        fwd.update(from, 0.0, -1, -1);
+        fwd.getCandidates().update(from, 0.0);
+        bckg.update(to, 0.0, -1, -1);
+        bckg.getCandidates().update(to, 0.0);
+        meet(from, bckg.getDistance(from));
+
+        IndexedPriorityQueue forward = fwd.getCandidates();
+        IndexedPriorityQueue backward = bckg.getCandidates();
+        while (true) {
+            double topF = forward.getMinKey();
+            double topB = backward.getMinKey();
+            if (topF + topB >= best) {
+                break;
+            }
+            if (topF <= topB) {
+                stepForward();
+            } else {
+                stepBackward();
+            }
+        }
+        forward.clear();
+        backward.clear();
+        return best;
+    }
+
+    /**
+     * Runs the query and unpacks the path; the forward workspace is reused for unpacking.
+     */
+    public ShortestPath findShortestPath(int from, int to) {
+        route(from, to);
+        log.info("CRP visited: {}", visitedCount);
+
+        ShortestPath sp = new ShortestPath();
+        sp.setLength(meeting >= 0 ? best : Double.MAX_VALUE);
+        sp.setEdges(new ArrayList<>());
+        sp.setNodes(new ArrayList<>());
+        if (meeting < 0) {
+            return sp;
+        }
+
+        IntList tails = new IntList();
+        IntList heads = new IntList();
+        IntList arcs = new IntList();
+        for (int v = meeting; fwd.getParent(v) >= 0; v = fwd.getParent(v)) {
+            tails.add(fwd.getParent(v));
+            heads.add(v);
+            arcs.add(fwd.getParentEdge(v));
+        }
+        reverse(tails, heads, arcs);
+        for (int v = meeting; bckg.getParent(v) >= 0; v = bckg.getParent(v)) {
+            tails.add(v);
+            heads.add(bckg.getParent(v));
+            arcs.add(bckg.getParentEdge(v));
+        }
+
+        IntList edges = new IntList();
+        for (int i = 0; i < arcs.size(); i++) {
+            unpack(tails.get(i), heads.get(i), arcs.get(i), edges);
+        }
+        sp.getNodes().add(graph.nodeId(from));
+        for (int i = 0; i < edges.size(); i++) {
+            sp.getEdges().add(graph.edgeId(edges.get(i)));
+            sp.getNodes().add(graph.nodeId(graph.target(edges.get(i))));
+        }
+        return sp;
+    }
+
+    private void unpack(int tail, int head, int arc, IntList edges) {
+        if (arc >= 0) {
+            edges.add(arc);
+            return;
+        }
+        int level = CRPOverlay.cliqueLevel(arc);
+        overlay.cellSearch(level, overlay.cell(level, tail), tail, head, metric, fwd);
+
+        IntList tails = new IntList();
+        IntList heads = new IntList();
+        IntList arcs = new IntList();
+        for (int v = head; v != tail; v = fwd.getParent(v)) {
+            tails.add(fwd.getParent(v));
+            heads.add(v);
+            arcs.add(fwd.getParentEdge(v));
+        }
+        reverse(tails, heads, arcs);
+        for (int i = 0; i < arcs.size(); i++) {
+            unpack(tails.get(i), heads.get(i), arcs.get(i), edges);
+        }
+    }
+
+    private void stepForward() {
+        int u = fwd.getCandidates().extractMin();
+        fwd.settle(u);
+        visitedCount++;
+
+        double distance = fwd.getDistance(u);
+        int level = queryLevel(u);
+        if (level >= 0 && overlay.getLocalIndices()[level][u] >= 0) {
+            int cell = overlay.cell(level, u);
+            int begin = overlay.getCellOffsets()[level][cell];
+            int size = overlay.boundarySize(level, cell);
+            double[] matrix = metric.getMatrices()[level];
+            int row = overlay.getMatrixOffsets()[level][cell] + overlay.getLocalIndices()[level][u] * size;
+            for (int j = 0; j < size; j++) {
+                int w = overlay.getBoundaries()[level][begin + j];
+                relax(fwd, bckg, w, distance + matrix[row + j], u, CRPOverlay.cliqueArc(level));
+            }
+        } else {
+            level = -1;
+        }
+        for (int e = graph.outBegin(u); e < graph.outEnd(u); e++) {
+            int w = graph.target(e);
+            if (level < 0 || overlay.cell(level, w) != overlay.cell(level, u)) {
+                relax(fwd, bckg, w, distance + graph.weight(e), u, e);
+            }
+        }
+    }
+
+    private void stepBackward() {
+        int w = bckg.getCandidates().extractMin();
+        bckg.settle(w);
+        visitedCount++;
+
+        double distance = bckg.getDistance(w);
+        int level = queryLevel(w);
+        if (level >= 0 && overlay.getLocalIndices()[level][w] >= 0) {
+            int cell = overlay.cell(level, w);
+            int begin = overlay.getCellOffsets()[level][cell];
+            int size = overlay.boundarySize(level, cell);
+            double[] matrix = metric.getMatrices()[level];
+            int column = overlay.getMatrixOffsets()[level][cell] + overlay.getLocalIndices()[level][w];
+            for (int i = 0; i < size; i++) {
+                int u = overlay.getBoundaries()[level][begin + i];
+                relax(bckg, fwd, u, distance + matrix[column + i * size], w, CRPOverlay.cliqueArc(level));
+            }
+        }
+        for (int i = graph.inBegin(w); i < graph.inEnd(w); i++) {
+            int u = graph.inSource(i);
+            if (scansBaseEdge(u, w)) {
+                relax(bckg, fwd, u, distance + graph.inWeight(i), w, graph.inEdge(i));
+            }
+        }
+    }
+
+    /**
+     * Whether the forward search scans the base edge from u to w, i.e. the reverse of the forward rule.
+     */
+    private boolean scansBaseEdge(int u, int w) {
+        int level = queryLevel(u);
+        if (level < 0 || overlay.getLocalIndices()[level][u] < 0) {
+            return true;
+        }
+        return overlay.cell(level, w) != overlay.cell(level, u);
+    }
+
+    private int queryLevel(int v) {
+        for (int level = overlay.getLevelCount() - 1; level >= 0; level--) {
+            int cell = overlay.cell(level, v);
+            if (cell != overlay.cell(level, source) && cell != overlay.cell(level, target)) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    private void relax(SearchWorkspace self, SearchWorkspace other, int node, double distance, int parent, int edge) {
+        if (self.isSettled(node) || distance >= self.getDistance(node)) {
+            return;
+        }
+        self.update(node, distance, parent, edge);
+        self.getCandidates().update(node, distance);
+        meet(node, distance + other.getDistance(node));
+    }
+
+    private void meet(int node, double distance) {
+        if (distance < best) {
+            best = distance;
+            meeting = node;
+        }
+    }
+
+    private static void reverse(IntList tails, IntList heads, IntList arcs) {
+        int[] t = tails.toArray();
+        int[] h = heads.toArray();
+        int[] a = arcs.toArray();
+        tails.clear();
+        heads.clear();
+        arcs.clear();
+        for (int i = t.length - 1; i >= 0; i--) {
+            tails.add(t[i]);
+            heads.add(h[i]);
+            arcs.add(a[i]);
+        }
+    }
+}
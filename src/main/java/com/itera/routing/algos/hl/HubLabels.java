@@ -0,0 +1,489 @@
+package com.itera.routing.algos.hl;
+
+import com.itera.routing.algos.ch.CHData;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.algos.ch.ShortcutUnpacker;
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IntList;
+import com.itera.routing.utils.SnapshotReader;
+import com.itera.routing.utils.SnapshotWriter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hub labels derived from a contraction hierarchy. The forward label of a node lists the nodes its upward
+ * CH search reaches (hubs) with their distances, the backward label the same for the reverse search; the
+ * distance between s and t is the minimum of {@code forward(s, h) + backward(t, h)} over their common hubs.
+ * <p>
+ * Labels are built top-down by rank: a node's label is the union of its upper neighbours' labels, then every
+ * entry that is longer than the distance the labels already give (bootstrapping) is pruned. Each entry keeps
+ * the CH edge it leaves the node by (forward) or enters it by (backward), so a path is recovered by walking
+ * the labels towards the hub and unpacking the shortcuts.
+ * <p>
+ * All labels of a direction live in flat columns sorted by hub: {@code offsets}, {@code hubs} (base node
+ * indices), {@code distances} and {@code edges} (combined CH edge indices, -1 for the node itself), so they
+ * can be mapped from a snapshot.
+ */
+@Slf4j
+@Getter
+@RequiredArgsConstructor
+public class HubLabels {
+
+    private final CHData chData;
+
+    private final IntBuffer forwardOffsets;
+    private final IntBuffer forwardHubs;
+    private final DoubleBuffer forwardDistances;
+    private final IntBuffer forwardEdges;
+
+    private final IntBuffer backwardOffsets;
+    private final IntBuffer backwardHubs;
+    private final DoubleBuffer backwardDistances;
+    private final IntBuffer backwardEdges;
+
+    public static HubLabels build(CHQueryGraph graph) {
+        return new HubLabelBuilder(graph).build();
+    }
+
+    public int getNodeCount() {
+        return forwardOffsets.limit() - 1;
+    }
+
+    public double getAverageLabelSize() {
+        return (forwardHubs.limit() + backwardHubs.limit()) / (2.0 * Math.max(1, getNodeCount()));
+    }
+
+    /**
+     * Distance between base graph node indices, {@link Double#POSITIVE_INFINITY} if unreachable.
+     */
+    public double distance(int from, int to) {
+        int f = forwardOffsets.get(from);
+        int fEnd = forwardOffsets.get(from + 1);
+        int b = backwardOffsets.get(to);
+        int bEnd = backwardOffsets.get(to + 1);
+        double best = Double.POSITIVE_INFINITY;
+        while (f < fEnd && b < bEnd) {
+            int fh = forwardHubs.get(f);
+            int bh = backwardHubs.get(b);
+            if (fh < bh) {
+                f++;
+            } else if (fh > bh) {
+                b++;
+            } else {
+                best = Math.min(best, forwardDistances.get(f++) + backwardDistances.get(b++));
+            }
+        }
+        return best;
+    }
+
+    public ShortestPath findShortestPath(int from, int to, ShortcutUnpacker unpacker) {
+
+        CsrGraph base = chData.getGraph();
+        int hub = -1;
+        double best = Double.POSITIVE_INFINITY;
+        int f = forwardOffsets.get(from);
+        int fEnd = forwardOffsets.get(from + 1);
+        int b = backwardOffsets.get(to);
+        int bEnd = backwardOffsets.get(to + 1);
+        while (f < fEnd && b < bEnd) {
+            int fh = forwardHubs.get(f);
+            int bh = backwardHubs.get(b);
+            if (fh < bh) {
+                f++;
+            } else if (fh > bh) {
+                b++;
+            } else {
+                double d = forwardDistances.get(f++) + backwardDistances.get(b++);
+                if (d < best) {
+                    best = d;
+                    hub = fh;
+                }
+            }
+        }
+
+        ShortestPath sp = new ShortestPath();
+        sp.setLength(hub >= 0 ? best : Double.MAX_VALUE);
+        sp.setEdges(new ArrayList<>());
+        sp.setNodes(new ArrayList<>());
+        if (hub < 0) {
+            return sp;
+        }
+
+        List<Integer> chEdges = new ArrayList<>();
+        for (int node = from; node != hub; ) {
+            int edge = forwardEdges.get(entry(forwardOffsets, forwardHubs, node, hub));
+            chEdges.add(edge);
+            node = target(edge);
+        }
+        List<Integer> tail = new ArrayList<>();
+        for (int node = to; node != hub; ) {
+            int edge = backwardEdges.get(entry(backwardOffsets, backwardHubs, node, hub));
+            tail.add(edge);
+            node = source(edge);
+        }
+        for (int i = tail.size() - 1; i >= 0; i--) {
+            chEdges.add(tail.get(i));
+        }
+
+        IntList edges = unpacker.unpack(chEdges);
+        sp.getNodes().add(base.nodeId(from));
+        for (int i = 0; i < edges.size(); i++) {
+            int edge = edges.get(i);
+            sp.getEdges().add(base.edgeId(edge));
+            sp.getNodes().add(base.nodeId(base.target(edge)));
+        }
+        return sp;
+    }
+
+    public void write(SnapshotWriter out) throws IOException {
+        out.writeInt(forwardHubs.limit());
+        out.writeInt(backwardHubs.limit());
+        out.writeInts(forwardOffsets);
+        out.writeInts(forwardHubs);
+        out.writeDoubles(forwardDistances);
+        out.writeInts(forwardEdges);
+        out.writeInts(backwardOffsets);
+        out.writeInts(backwardHubs);
+        out.writeDoubles(backwardDistances);
+        out.writeInts(backwardEdges);
+    }
+
+    public static HubLabels read(SnapshotReader in, CHData chData) throws IOException {
+        int n = chData.getGraph().getNodeCount();
+        int forward = in.readInt();
+        int backward = in.readInt();
+        return new HubLabels(
+            chData,
+            in.mapInts(n + 1),
+            in.mapInts(forward),
+            in.mapDoubles(forward),
+            in.mapInts(forward),
+            in.mapInts(n + 1),
+            in.mapInts(backward),
+            in.mapDoubles(backward),
+            in.mapInts(backward)
+        );
+    }
+
+    private int entry(IntBuffer offsets, IntBuffer hubs, int node, int hub) {
+        int lo = offsets.get(node);
+        int hi = offsets.get(node + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int h = hubs.get(mid);
+            if (h < hub) {
+                lo = mid + 1;
+            } else if (h > hub) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        throw new IllegalStateException("Hub " + hub + " missing in the label of node " + node);
+    }
+
+    private int target(int edge) {
+        CsrGraph base = chData.getGraph();
+        return chData.isShortcut(edge)
+            ? chData.getShortcuts().target(edge - base.getEdgeCount())
+            : base.target(edge);
+    }
+
+    private int source(int edge) {
+        CsrGraph base = chData.getGraph();
+        return chData.isShortcut(edge)
+            ? chData.getShortcuts().source(edge - base.getEdgeCount())
+            : base.source(edge);
+    }
+
+    /**
+     * Top-down label construction. Nodes are grouped by their depth below the top of the hierarchy; all
+     * upper neighbours of a node lie in shallower groups, so the nodes of one group are labelled in parallel.
+     */
+    private static class HubLabelBuilder {
+
+        private final CHQueryGraph graph;
+        private final int n;
+        private final int[][] forwardHubs;
+        private final double[][] forwardDistances;
+        private final int[][] forwardEdges;
+        private final int[][] backwardHubs;
+        private final double[][] backwardDistances;
+        private final int[][] backwardEdges;
+        private final ThreadLocal<Candidates> candidates;
+
+        HubLabelBuilder(CHQueryGraph graph) {
+            this.graph = graph;
+            this.n = graph.getNodeCount();
+            this.forwardHubs = new int[n][];
+            this.forwardDistances = new double[n][];
+            this.forwardEdges = new int[n][];
+            this.backwardHubs = new int[n][];
+            this.backwardDistances = new double[n][];
+            this.backwardEdges = new int[n][];
+            this.candidates = ThreadLocal.withInitial(() -> new Candidates(n));
+        }
+
+        HubLabels build() {
+
+            long start = System.currentTimeMillis();
+            int[] depths = new int[n];
+            int height = 0;
+            for (int p = n - 1; p >= 0; p--) {
+                for (int i = graph.getUpOffsets()[p]; i < graph.getUpOffsets()[p + 1]; i++) {
+                    depths[p] = Math.max(depths[p], depths[graph.getUpTargets()[i]] + 1);
+                }
+                for (int i = graph.getDownOffsets()[p]; i < graph.getDownOffsets()[p + 1]; i++) {
+                    depths[p] = Math.max(depths[p], depths[graph.getDownSources()[i]] + 1);
+                }
+                height = Math.max(height, depths[p] + 1);
+            }
+            IntList[] levels = new IntList[height];
+            for (int l = 0; l < height; l++) {
+                levels[l] = new IntList();
+            }
+            for (int p = n - 1; p >= 0; p--) {
+                levels[depths[p]].add(p);
+            }
+
+            for (IntList level : levels) {
+                Arrays.stream(level.toArray()).parallel().forEach(p -> {
+                    Candidates c = candidates.get();
+                    forward(p, c);
+                    backward(p, c);
+                });
+            }
+
+            HubLabels labels = flatten();
+            log.info(
+                "Hub labels built in {} ms: {} levels, {} hubs per label on average",
+                System.currentTimeMillis() - start,
+                height,
+                String.format("%.1f", labels.getAverageLabelSize())
+            );
+            return labels;
+        }
+
+        private void forward(int p, Candidates c) {
+            c.start(p);
+            for (int i = graph.getUpOffsets()[p]; i < graph.getUpOffsets()[p + 1]; i++) {
+                int q = graph.getUpTargets()[i];
+                c.addAll(forwardHubs[q], forwardDistances[q], graph.getUpWeights()[i], graph.getUpEdges()[i]);
+            }
+            c.sort();
+            for (int i = 0; i < c.size; i++) {
+                int h = c.hubs[i];
+                c.pruned[i] = h != p && meet(
+                    c.hubs, c.distances, c.size,
+                    backwardHubs[h], backwardDistances[h], backwardHubs[h].length
+                ) < c.distances[i];
+            }
+            int size = c.compact();
+            forwardHubs[p] = Arrays.copyOf(c.hubs, size);
+            forwardDistances[p] = Arrays.copyOf(c.distances, size);
+            forwardEdges[p] = Arrays.copyOf(c.edges, size);
+        }
+
+        private void backward(int p, Candidates c) {
+            c.start(p);
+            for (int i = graph.getDownOffsets()[p]; i < graph.getDownOffsets()[p + 1]; i++) {
+                int q = graph.getDownSources()[i];
+                c.addAll(backwardHubs[q], backwardDistances[q], graph.getDownWeights()[i], graph.getDownEdges()[i]);
+            }
+            c.sort();
+            for (int i = 0; i < c.size; i++) {
+                int h = c.hubs[i];
+                c.pruned[i] = h != p && meet(
+                    forwardHubs[h], forwardDistances[h], forwardHubs[h].length,
+                    c.hubs, c.distances, c.size
+                ) < c.distances[i];
+            }
+            int size = c.compact();
+            backwardHubs[p] = Arrays.copyOf(c.hubs, size);
+            backwardDistances[p] = Arrays.copyOf(c.distances, size);
+            backwardEdges[p] = Arrays.copyOf(c.edges, size);
+        }
+
+        private static double meet(
+            int[] fHubs,
+            double[] fDistances,
+            int fSize,
+            int[] bHubs,
+            double[] bDistances,
+            int bSize
+        ) {
+            int f = 0;
+            int b = 0;
+            double best = Double.POSITIVE_INFINITY;
+            while (f < fSize && b < bSize) {
+                if (fHubs[f] < bHubs[b]) {
+                    f++;
+                } else if (fHubs[f] > bHubs[b]) {
+                    b++;
+                } else {
+                    best = Math.min(best, fDistances[f++] + bDistances[b++]);
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Converts rank positions to base node indices; hubs are re-sorted by node index.
+         */
+        private HubLabels flatten() {
+            int[] order = graph.getOrder();
+            int[] positions = graph.getPositions();
+            IntBuffer[] forward = flatten(forwardHubs, forwardDistances, forwardEdges, order, positions);
+            IntBuffer[] backward = flatten(backwardHubs, backwardDistances, backwardEdges, order, positions);
+            return new HubLabels(
+                graph.getChData(),
+                forward[0],
+                forward[1],
+                distances(forwardHubs, forwardDistances, order, positions, forward[0]),
+                forward[2],
+                backward[0],
+                backward[1],
+                distances(backwardHubs, backwardDistances, order, positions, backward[0]),
+                backward[2]
+            );
+        }
+
+        private IntBuffer[] flatten(int[][] hubs, double[][] distances, int[][] edges, int[] order, int[] positions) {
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] = offsets[v] + hubs[positions[v]].length;
+            }
+            int[] flatHubs = new int[offsets[n]];
+            int[] flatEdges = new int[offsets[n]];
+            Arrays.stream(order).parallel().forEach(v -> {
+                int p = positions[v];
+                int[] sorted = sortedByNode(hubs[p], order);
+                for (int i = 0; i < sorted.length; i++) {
+                    flatHubs[offsets[v] + i] = order[hubs[p][sorted[i]]];
+                    flatEdges[offsets[v] + i] = edges[p][sorted[i]];
+                }
+            });
+            return new IntBuffer[]{IntBuffer.wrap(offsets), IntBuffer.wrap(flatHubs), IntBuffer.wrap(flatEdges)};
+        }
+
+        private DoubleBuffer distances(
+            int[][] hubs,
+            double[][] distances,
+            int[] order,
+            int[] positions,
+            IntBuffer offsets
+        ) {
+            double[] flat = new double[offsets.get(n)];
+            Arrays.stream(order).parallel().forEach(v -> {
+                int p = positions[v];
+                int[] sorted = sortedByNode(hubs[p], order);
+                for (int i = 0; i < sorted.length; i++) {
+                    flat[offsets.get(v) + i] = distances[p][sorted[i]];
+                }
+            });
+            return DoubleBuffer.wrap(flat);
+        }
+
+        /**
+         * Permutation of a label's entries ordering them by base node index instead of rank position.
+         */
+        private static int[] sortedByNode(int[] hubs, int[] order) {
+            long[] keys = new long[hubs.length];
+            for (int i = 0; i < hubs.length; i++) {
+                keys[i] = (long) order[hubs[i]] << 32 | i;
+            }
+            Arrays.sort(keys);
+            int[] sorted = new int[hubs.length];
+            for (int i = 0; i < hubs.length; i++) {
+                sorted[i] = (int) keys[i];
+            }
+            return sorted;
+        }
+    }
+
+    /**
+     * Per-thread scratch space merging the labels of a node's upper neighbours.
+     */
+    private static class Candidates {
+
+        private final double[] best;
+        private final int[] bestEdges;
+        private final int[] stamps;
+        private int generation;
+
+        private int[] hubs = new int[16];
+        private double[] distances = new double[16];
+        private int[] edges = new int[16];
+        private boolean[] pruned = new boolean[16];
+        private int size;
+
+        Candidates(int capacity) {
+            this.best = new double[capacity];
+            this.bestEdges = new int[capacity];
+            this.stamps = new int[capacity];
+        }
+
+        void start(int node) {
+            generation++;
+            size = 0;
+            offer(node, 0.0, -1);
+        }
+
+        void addAll(int[] labelHubs, double[] labelDistances, double weight, int edge) {
+            for (int i = 0; i < labelHubs.length; i++) {
+                offer(labelHubs[i], weight + labelDistances[i], edge);
+            }
+        }
+
+        private void offer(int hub, double distance, int edge) {
+            if (stamps[hub] != generation) {
+                stamps[hub] = generation;
+                best[hub] = distance;
+                bestEdges[hub] = edge;
+                if (size == hubs.length) {
+                    hubs = Arrays.copyOf(hubs, size * 2);
+                    distances = Arrays.copyOf(distances, size * 2);
+                    edges = Arrays.copyOf(edges, size * 2);
+                    pruned = new boolean[size * 2];
+                }
+                hubs[size++] = hub;
+            } else if (distance < best[hub]) {
+                best[hub] = distance;
+                bestEdges[hub] = edge;
+            }
+        }
+
+        void sort() {
+            Arrays.sort(hubs, 0, size);
+            for (int i = 0; i < size; i++) {
+                distances[i] = best[hubs[i]];
+                edges[i] = bestEdges[hubs[i]];
+            }
+        }
+
+        /**
+         * Drops the pruned entries and returns the new size.
+         */
+        int compact() {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!pruned[i]) {
+                    hubs[kept] = hubs[i];
+                    distances[kept] = distances[i];
+                    edges[kept] = edges[i];
+                    kept++;
+                }
+            }
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.itera.routing.algos.isochrone;
+
+import com.itera.routing.algos.CsrDijkstra;
+import com.itera.routing.algos.Dijkstra;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.algos.phast.PHAST;
+import com.itera.routing.model.Isochrone;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IntList;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Isochrones for several budgets from one search. The search runs once up to the largest budget and keeps
+ * the reached nodes with their distances; every budget then takes the nodes within it and the convex hull of
+ * their coordinates. Small budgets use a Dijkstra bounded by the largest budget, large ones a {@link PHAST}
+ * sweep whose cost does not grow with the area. Both run on the metric of the given query graph, so they
+ * follow metric updates alike. The reached nodes are sorted by coordinates once for all hulls.
+ */
+@RequiredArgsConstructor
+public class IsochroneSearch {
+
+    private final CsrGraph graph;
+
+    /**
+     * largest budget from which on the PHAST sweep is used; 0 always searches bounded
+     */
+    private final double phastBudget;
+
+    /**
+     * Isochrones from a node index by the search that suits the largest budget.
+     */
+    public List<Isochrone> find(int from, double[] budgets, CHQueryGraph queryGraph, SearchWorkspace workspace) {
+        if (phastBudget > 0 && max(budgets) >= phastBudget) {
+            return sweep(from, budgets, queryGraph, workspace);
+        }
+        return bounded(from, budgets, queryGraph, workspace);
+    }
+
+    /**
+     * Bounded Dijkstra from a node index on the base graph of the query graph's metric.
+     */
+    public List<Isochrone> bounded(int from, double[] budgets, CHQueryGraph queryGraph, SearchWorkspace workspace) {
+        CsrGraph metric = queryGraph.getChData().getGraph();
+        CsrDijkstra dijkstra = new CsrDijkstra(metric, null, Dijkstra.Direction.FORWARD, n -> 0.0, workspace);
+        dijkstra.setLengthLimit(max(budgets));
+        dijkstra.initRouting(from);
+
+        IntList reached = new IntList();
+        while (dijkstra.doStep(-1)) {
+            reached.add(dijkstra.getLastVisited());
+        }
+        double[] distances = new double[reached.size()];
+        for (int i = 0; i < reached.size(); i++) {
+            distances[i] = dijkstra.getDistance(reached.get(i));
+        }
+        return isochrones(reached, distances, budgets);
+    }
+
+    /**
+     * PHAST sweep on the query graph from a node index; the workspace runs the upward search.
+     */
+    public List<Isochrone> sweep(int from, double[] budgets, CHQueryGraph queryGraph, SearchWorkspace workspace) {
+        PHAST phast = new PHAST(queryGraph, Dijkstra.Direction.FORWARD, 1, workspace);
+        phast.run(from);
+
+        double limit = max(budgets);
+        double[] all = phast.distances(0);
+        IntList reached = new IntList();
+        for (int v = 0; v < all.length; v++) {
+            if (all[v] <= limit) {
+                reached.add(v);
+            }
+        }
+        double[] distances = new double[reached.size()];
+        for (int i = 0; i < reached.size(); i++) {
+            distances[i] = all[reached.get(i)];
+        }
+        return isochrones(reached, distances, budgets);
+    }
+
+    private List<Isochrone> isochrones(IntList reached, double[] distances, double[] budgets) {
+        Integer[] byCoordinates = new Integer[reached.size()];
+        for (int i = 0; i < byCoordinates.length; i++) {
+            byCoordinates[i] = i;
+        }
+        Arrays.sort(byCoordinates, (a, b) -> {
+            int cmp = Double.compare(graph.lon(reached.get(a)), graph.lon(reached.get(b)));
+            return cmp != 0 ? cmp : Double.compare(graph.lat(reached.get(a)), graph.lat(reached.get(b)));
+        });
+
+        List<Isochrone> isochrones = new ArrayList<>();
+        for (double budget : budgets) {
+            List<Long> nodes = new ArrayList<>();
+            for (int i = 0; i < reached.size(); i++) {
+                if (distances[i] <= budget) {
+                    nodes.add(graph.nodeId(reached.get(i)));
+                }
+            }
+            IntList inside = new IntList();
+            for (int i : byCoordinates) {
+                if (distances[i] <= budget) {
+                    inside.add(reached.get(i));
+                }
+            }
+            Isochrone isochrone = new Isochrone();
+            isochrone.setBudget(budget);
+            isochrone.setNodes(nodes);
+            isochrone.setBoundary(convexHull(inside.toArray()));
+            isochrones.add(isochrone);
+        }
+        return isochrones;
+    }
+
+    /**
+     * Monotone chain hull over nodes sorted by longitude and latitude, counter-clockwise and closed; fewer
+     * than three distinct points are returned as they are.
+     */
+    private List<double[]> convexHull(int[] sorted) {
+
+        int[] hull = new int[2 * sorted.length + 1];
+        int k = 0;
+        for (int node : sorted) {
+            while (k >= 2 && cross(hull[k - 2], hull[k - 1], node) <= 0) {
+                k--;
+            }
+            hull[k++] = node;
+        }
+        for (int i = sorted.length - 2, lower = k + 1; i >= 0; i--) {
+            while (k >= lower && cross(hull[k - 2], hull[k - 1], sorted[i]) <= 0) {
+                k--;
+            }
+            hull[k++] = sorted[i];
+        }
+
+        List<double[]> boundary = new ArrayList<>();
+        int size = sorted.length < 3 ? sorted.length : k;
+        for (int i = 0; i < size; i++) {
+            int node = sorted.length < 3 ? sorted[i] : hull[i];
+            boundary.add(new double[]{graph.lon(node), graph.lat(node)});
+        }
+        return boundary;
+    }
+
+    private double cross(int o, int a, int b) {
+        return (graph.lon(a) - graph.lon(o)) * (graph.lat(b) - graph.lat(o))
+            - (graph.lat(a) - graph.lat(o)) * (graph.lon(b) - graph.lon(o));
+    }
+
+    private static double max(double[] budgets) {
+        return Arrays.stream(budgets).max().orElse(0.0);
+    }
+}
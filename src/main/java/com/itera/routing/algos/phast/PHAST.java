@@ -0,0 +1,146 @@
+package com.itera.routing.algos.phast;
+
+import com.itera.routing.algos.Dijkstra;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * One-to-all distances on a contraction hierarchy (PHAST). An upward CH search from the source labels the
+ * nodes it settles; one sweep over all nodes in descending rank then takes, for every node, the minimum over
+ * its downward CH edges from the already final higher nodes. The sweep reads the {@link CHQueryGraph}
+ * adjacency in storage order, so it runs at memory speed instead of a priority queue's pace.
+ * <p>
+ * Up to {@link #getWidth()} sources share one sweep. Distances are interleaved by rank position,
+ * {@code [position * width + slot]}, so every edge of the sweep updates a contiguous block of slots in a loop
+ * the JIT can vectorize. A backward instance computes distances to the sources by running the search and
+ * the sweep on the reverse adjacency. Not thread safe; use one instance per thread.
+ */
+public class PHAST {
+
+    public static final int MAX_WIDTH = 16;
+
+    @Getter
+    private final CHQueryGraph graph;
+
+    @Getter
+    private final Dijkstra.Direction direction;
+
+    @Getter
+    private final int width;
+
+    private final SearchWorkspace workspace;
+    private final double[] distances;
+
+    @Getter
+    private int sourceCount;
+
+    public PHAST(CHQueryGraph graph, Dijkstra.Direction direction, int width) {
+        this(graph, direction, width, new SearchWorkspace(graph.getNodeCount(), IndexedPriorityQueue.Type.DARY));
+    }
+
+    /**
+     * Runs the upward searches on the given workspace, e.g. one borrowed for a single request.
+     */
+    public PHAST(CHQueryGraph graph, Dijkstra.Direction direction, int width, SearchWorkspace workspace) {
+        if (width < 1 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("PHAST width must be between 1 and " + MAX_WIDTH + ", was " + width);
+        }
+        this.graph = graph;
+        this.direction = direction;
+        this.width = width;
+        this.workspace = workspace;
+        this.distances = new double[graph.getNodeCount() * width];
+    }
+
+    /**
+     * Computes the distances from (forward) or to (backward) up to {@link #getWidth()} base graph node
+     * indices; slot i belongs to {@code sources[i]}.
+     */
+    public void run(int... sources) {
+        if (sources.length > width) {
+            throw new IllegalArgumentException("PHAST takes at most " + width + " sources, got " + sources.length);
+        }
+        this.sourceCount = sources.length;
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        for (int slot = 0; slot < sources.length; slot++) {
+            upward(graph.getPositions()[sources[slot]], slot);
+        }
+        if (direction == Dijkstra.Direction.FORWARD) {
+            sweep(graph.getDownOffsets(), graph.getDownSources(), graph.getDownWeights());
+        } else {
+            sweep(graph.getUpOffsets(), graph.getUpTargets(), graph.getUpWeights());
+        }
+    }
+
+    /**
+     * Distance of the last run between the source in the slot and a base graph node index.
+     */
+    public double distance(int slot, int node) {
+        return distances[graph.getPositions()[node] * width + slot];
+    }
+
+    /**
+     * Distances of the last run for the source in the slot, indexed by base graph node index; unreachable
+     * nodes hold {@link Double#POSITIVE_INFINITY}.
+     */
+    public double[] distances(int slot) {
+        int[] order = graph.getOrder();
+        double[] result = new double[order.length];
+        for (int p = 0; p < order.length; p++) {
+            result[order[p]] = distances[p * width + slot];
+        }
+        return result;
+    }
+
+    /**
+     * Upward search without stalling; a stalled node would only keep a longer label, which the sweep
+     * corrects anyway, so stalling does not pay off here.
+     */
+    private void upward(int source, int slot) {
+        boolean forward = direction == Dijkstra.Direction.FORWARD;
+        int[] offsets = forward ? graph.getUpOffsets() : graph.getDownOffsets();
+        int[] neighbours = forward ? graph.getUpTargets() : graph.getDownSources();
+        double[] weights = forward ? graph.getUpWeights() : graph.getDownWeights();
+
+        workspace.reset();
+        IndexedPriorityQueue candidates = workspace.getCandidates();
+        workspace.update(source, 0.0, -1, -1);
+        candidates.update(source, 0.0);
+        int u;
+        while ((u = candidates.extractMin()) >= 0) {
+            workspace.settle(u);
+            double distance = workspace.getDistance(u);
+            distances[u * width + slot] = distance;
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int w = neighbours[i];
+                double d = distance + weights[i];
+                if (d < workspace.getDistance(w)) {
+                    workspace.update(w, d, u, -1);
+                    candidates.update(w, d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Descending rank sweep; {@code neighbours} are the higher ends of the edges stored at each position.
+     */
+    private void sweep(int[] offsets, int[] neighbours, double[] weights) {
+        double[] d = distances;
+        int w = width;
+        for (int p = offsets.length - 2; p >= 0; p--) {
+            int base = p * w;
+            for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                int from = neighbours[i] * w;
+                double weight = weights[i];
+                for (int slot = 0; slot < w; slot++) {
+                    d[base + slot] = Math.min(d[base + slot], d[from + slot] + weight);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.itera.routing.algos.reach;
+
+import com.itera.routing.algos.CsrDijkstra;
+import com.itera.routing.algos.Dijkstra;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import com.itera.routing.utils.IntList;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Upper bounds on the reach of every node: the largest min(d(s, v), d(v, t)) over shortest paths from s to t
+ * through v. Reaches below the limit are computed exactly from partial shortest path trees grown from every
+ * node up to the radius {@code 2 * (limit + longest edge)}: the source and the target that decide a reach of
+ * at least the limit each lie within {@code limit + longest edge} of the node. Heights are taken over the
+ * shortest path DAG, so ties between paths count too. All other nodes get an infinite bound. Trees are grown
+ * in parallel.
+ * <p>
+ * A query skips a node whose reach is below both its distance from the source and a lower bound of its
+ * distance to the target; one shortest path always survives because every node on it reaches at least the
+ * smaller of the two.
+ */
+@Slf4j
+public class ReachBounds {
+
+    private static final double TIE_TOLERANCE = 1e-9;
+
+    @Getter
+    private final CsrGraph graph;
+
+    @Getter
+    private final double limit;
+
+    private final double[] reaches;
+
+    public ReachBounds(CsrGraph graph, double limit) {
+
+        long start = System.currentTimeMillis();
+        this.graph = graph;
+        this.limit = limit;
+        int n = graph.getNodeCount();
+
+        double longest = 0;
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            if (graph.weight(e) != Double.POSITIVE_INFINITY) {
+                longest = Math.max(longest, graph.weight(e));
+            }
+        }
+        double radius = 2 * (limit + longest);
+
+        List<Tree> trees = Collections.synchronizedList(new ArrayList<>());
+        ThreadLocal<Tree> local = ThreadLocal.withInitial(() -> {
+            Tree tree = new Tree(graph, radius);
+            trees.add(tree);
+            return tree;
+        });
+        IntStream.range(0, n).parallel().forEach(s -> local.get().grow(s));
+
+        this.reaches = new double[n];
+        int bounded = 0;
+        for (int v = 0; v < n; v++) {
+            double reach = 0;
+            for (Tree tree : trees) {
+                reach = Math.max(reach, tree.reaches[v]);
+            }
+            if (reach < limit) {
+                reaches[v] = reach;
+                bounded++;
+            } else {
+                reaches[v] = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        log.info(
+            "Reach bounds built in {} ms: {} of {} nodes have a reach below {}",
+            System.currentTimeMillis() - start,
+            bounded,
+            n,
+            limit
+        );
+    }
+
+    public double reach(int node) {
+        return reaches[node];
+    }
+
+    /**
+     * A* between node indices with the given lower bound to the target, skipping nodes by their reach.
+     */
+    public ShortestPath findShortestPath(int from, int to, IntToDoubleFunction lowerBound, SearchWorkspace workspace) {
+        CsrDijkstra dijkstra = new CsrDijkstra(graph, null, Dijkstra.Direction.FORWARD, lowerBound, workspace);
+        dijkstra.setPruning((node, distance) -> {
+            double reach = reaches[node];
+            return reach < distance && reach < lowerBound.applyAsDouble(node);
+        });
+        return dijkstra.findShortestPath(from, to);
+    }
+
+    /**
+     * Partial trees of one thread; keeps the largest reach seen for every node.
+     */
+    private static class Tree {
+
+        private final CsrGraph graph;
+        private final CsrDijkstra dijkstra;
+        private final double[] reaches;
+        private final double[] heights;
+
+        /**
+         * node → position in the settle order of the current tree
+         */
+        private final int[] positions;
+        private final IntList settled = new IntList();
+
+        Tree(CsrGraph graph, double radius) {
+            this.graph = graph;
+            SearchWorkspace workspace = new SearchWorkspace(graph.getNodeCount(), IndexedPriorityQueue.Type.DARY);
+            this.dijkstra = new CsrDijkstra(graph, null, Dijkstra.Direction.FORWARD, v -> 0.0, workspace);
+            dijkstra.setLengthLimit(radius);
+            this.reaches = new double[graph.getNodeCount()];
+            this.heights = new double[graph.getNodeCount()];
+            this.positions = new int[graph.getNodeCount()];
+        }
+
+        void grow(int s) {
+            settled.clear();
+            dijkstra.init();
+            dijkstra.initRouting(s);
+            while (dijkstra.doStep(-1)) {
+                positions[dijkstra.getLastVisited()] = settled.size();
+                settled.add(dijkstra.getLastVisited());
+            }
+
+            for (int i = settled.size() - 1; i >= 0; i--) {
+                int v = settled.get(i);
+                double depth = dijkstra.getDistance(v);
+                double height = 0;
+                for (int e = graph.outBegin(v); e < graph.outEnd(v); e++) {
+                    int w = graph.target(e);
+                    if (!dijkstra.isVisited(w) || positions[w] <= i) {
+                        continue;
+                    }
+                    double d = dijkstra.getDistance(w);
+                    if (Math.abs(depth + graph.weight(e) - d) <= TIE_TOLERANCE * Math.max(1, d)) {
+                        height = Math.max(height, heights[w] + graph.weight(e));
+                    }
+                }
+                heights[v] = height;
+                reaches[v] = Math.max(reaches[v], Math.min(depth, height));
+            }
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.itera.routing.algos.tnr;
+
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.ch.CHQuery;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.algos.ch.ShortcutUnpacker;
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import com.itera.routing.utils.IntList;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Transit node routing on top of a contraction hierarchy. The {@code k} highest ranked nodes are transit
+ * nodes. Every node keeps its access nodes: the transit nodes its upward CH search settles when it does not
+ * expand transit nodes, minus those reached more cheaply through another access node. A dense table holds
+ * the distances between all transit nodes.
+ * <p>
+ * When the peak of the CH path between s and t is a transit node, the distance is the minimum of
+ * {@code access(s, a) + table(a, b) + access(b, t)}. Otherwise the peak lies in both the forward search
+ * space of s and the backward search space of t. The locality filter keeps a coarse grid footprint of both
+ * spaces for every node, so a query whose footprints intersect is local and answered by the CH search. The
+ * filter is conservative, answers are always exact.
+ * <p>
+ * Nodes are addressed by rank position of the {@link CHQueryGraph}, like in {@link CHQuery}.
+ */
+@Slf4j
+public class TransitNodeRouting {
+
+    private static final int GRID_SIZE = 16;
+
+    /**
+     * largest array the JVM reliably allocates
+     */
+    private static final int MAX_TABLE_SIZE = Integer.MAX_VALUE - 8;
+
+    @Getter
+    private final CHQueryGraph graph;
+
+    @Getter
+    private final int transitCount;
+
+    /**
+     * rank position → transit index, -1 for other nodes
+     */
+    private final int[] transitIndices;
+
+    private final double[] table;
+
+    private final Access forward;
+    private final Access backward;
+
+    private final double minLon;
+    private final double minLat;
+    private final double cellWidth;
+    private final double cellHeight;
+
+    public TransitNodeRouting(CHQueryGraph graph, int transitCount) {
+
+        long start = System.currentTimeMillis();
+        this.graph = graph;
+        int n = graph.getNodeCount();
+        this.transitCount = Math.min(transitCount, n);
+        if ((long) this.transitCount * this.transitCount > MAX_TABLE_SIZE) {
+            throw new IllegalArgumentException(
+                "Transit distance table of " + this.transitCount + "x" + this.transitCount
+                    + " entries exceeds the largest array; lower routing.tnr.transit-nodes to at most "
+                    + (int) Math.sqrt(MAX_TABLE_SIZE)
+            );
+        }
+        this.transitIndices = new int[n];
+        Arrays.fill(transitIndices, -1);
+        for (int i = 0; i < this.transitCount; i++) {
+            transitIndices[n - this.transitCount + i] = i;
+        }
+
+        CsrGraph base = graph.getChData().getGraph();
+        double maxLon = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double lonMin = Double.POSITIVE_INFINITY;
+        double latMin = Double.POSITIVE_INFINITY;
+        for (int v = 0; v < n; v++) {
+            lonMin = Math.min(lonMin, base.lon(v));
+            latMin = Math.min(latMin, base.lat(v));
+            maxLon = Math.max(maxLon, base.lon(v));
+            maxLat = Math.max(maxLat, base.lat(v));
+        }
+        this.minLon = lonMin;
+        this.minLat = latMin;
+        this.cellWidth = Math.max(maxLon - lonMin, Double.MIN_NORMAL) / GRID_SIZE;
+        this.cellHeight = Math.max(maxLat - latMin, Double.MIN_NORMAL) / GRID_SIZE;
+
+        ThreadLocal<SearchWorkspace> workspaces = ThreadLocal.withInitial(
+            () -> new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY)
+        );
+        this.forward = new Access(n);
+        this.backward = new Access(n);
+        int[][] forwardNodes = new int[n][];
+        double[][] forwardDistances = new double[n][];
+        int[][] backwardNodes = new int[n][];
+        double[][] backwardDistances = new double[n][];
+        IntStream.range(0, n).parallel().forEach(p -> {
+            SearchWorkspace ws = workspaces.get();
+            IntList found = new IntList();
+            search(p, true, true, ws, forward.footprints, found);
+            forwardNodes[p] = transits(found);
+            forwardDistances[p] = distances(found, ws);
+            search(p, false, true, ws, backward.footprints, found);
+            backwardNodes[p] = transits(found);
+            backwardDistances[p] = distances(found, ws);
+        });
+
+        this.table = distanceTable(workspaces);
+
+        IntStream.range(0, n).parallel().forEach(p -> {
+            prune(forwardNodes, forwardDistances, p, true);
+            prune(backwardNodes, backwardDistances, p, false);
+        });
+        forward.flatten(forwardNodes, forwardDistances);
+        backward.flatten(backwardNodes, backwardDistances);
+
+        log.info(
+            "TNR built in {} ms: {} transit nodes, {} forward / {} backward access nodes on average",
+            System.currentTimeMillis() - start,
+            this.transitCount,
+            String.format("%.1f", forward.nodes.length / (double) Math.max(1, n)),
+            String.format("%.1f", backward.nodes.length / (double) Math.max(1, n))
+        );
+    }
+
+    /**
+     * Whether the query between base graph node indices has to be answered by the CH search.
+     */
+    public boolean isLocal(int from, int to) {
+        int s = graph.getPositions()[from];
+        int t = graph.getPositions()[to];
+        return forward.footprints.intersects(s, backward.footprints, t);
+    }
+
+    /**
+     * Distance between base graph node indices; local queries run on {@code query}.
+     */
+    public double distance(int from, int to, CHQuery query) {
+        if (isLocal(from, to)) {
+            return query.route(from, to);
+        }
+        int s = graph.getPositions()[from];
+        int t = graph.getPositions()[to];
+        long pair = bestPair(s, t);
+        return pair < 0 ? Double.POSITIVE_INFINITY : pairDistance(pair);
+    }
+
+    /**
+     * Path between base graph node indices. Non-local paths are recovered from the access searches of both
+     * ends and a CH query between the two transit nodes, which only touches the top of the hierarchy.
+     */
+    public ShortestPath findShortestPath(
+        int from,
+        int to,
+        CHQuery query,
+        SearchWorkspace local,
+        ShortcutUnpacker unpacker
+    ) {
+
+        if (isLocal(from, to)) {
+            return query.findShortestPath(from, to);
+        }
+
+        int s = graph.getPositions()[from];
+        int t = graph.getPositions()[to];
+        long pair = bestPair(s, t);
+
+        CsrGraph base = graph.getChData().getGraph();
+        ShortestPath sp = new ShortestPath();
+        sp.setEdges(new ArrayList<>());
+        sp.setNodes(new ArrayList<>());
+        sp.setLength(pair >= 0 ? pairDistance(pair) : Double.MAX_VALUE);
+        if (pair < 0) {
+            return sp;
+        }
+
+        int a = forward.nodes[(int) (pair >>> 32)];
+        int b = backward.nodes[(int) pair];
+        int aNode = graph.getOrder()[positionOf(a)];
+        int bNode = graph.getOrder()[positionOf(b)];
+
+        List<Integer> chEdges = new ArrayList<>();
+        search(s, true, true, local, null, null);
+        for (int p = positionOf(a); local.getParentEdge(p) >= 0; p = local.getParent(p)) {
+            chEdges.add(local.getParentEdge(p));
+        }
+        Collections.reverse(chEdges);
+
+        query.route(aNode, bNode);
+        chEdges.addAll(query.pathEdges());
+
+        search(t, false, true, local, null, null);
+        for (int p = positionOf(b); local.getParentEdge(p) >= 0; p = local.getParent(p)) {
+            chEdges.add(local.getParentEdge(p));
+        }
+
+        IntList edges = unpacker.unpack(chEdges);
+        sp.getNodes().add(base.nodeId(from));
+        for (int i = 0; i < edges.size(); i++) {
+            int edge = edges.get(i);
+            sp.getEdges().add(base.edgeId(edge));
+            sp.getNodes().add(base.nodeId(base.target(edge)));
+        }
+        return sp;
+    }
+
+    /**
+     * Forward and backward access entries of the best pair packed into a long, -1 if t is unreachable.
+     */
+    private long bestPair(int s, int t) {
+        double best = Double.POSITIVE_INFINITY;
+        long pair = -1;
+        for (int i = forward.offsets[s]; i < forward.offsets[s + 1]; i++) {
+            int row = forward.nodes[i] * transitCount;
+            double head = forward.distances[i];
+            for (int j = backward.offsets[t]; j < backward.offsets[t + 1]; j++) {
+                double d = head + table[row + backward.nodes[j]] + backward.distances[j];
+                if (d < best) {
+                    best = d;
+                    pair = (long) i << 32 | j;
+                }
+            }
+        }
+        return pair;
+    }
+
+    private double pairDistance(long pair) {
+        int i = (int) (pair >>> 32);
+        int j = (int) pair;
+        double between = table[forward.nodes[i] * transitCount + backward.nodes[j]];
+        return forward.distances[i] + between + backward.distances[j];
+    }
+
+    private int positionOf(int transit) {
+        return graph.getNodeCount() - transitCount + transit;
+    }
+
+    /**
+     * Upward search from rank position p, optionally stopping at transit nodes (they are settled, but not
+     * expanded). Settled transit nodes are collected into {@code found}, the other settled nodes extend the
+     * node's bounding box.
+     */
+    private void search(
+        int p,
+        boolean up,
+        boolean stopAtTransit,
+        SearchWorkspace ws,
+        Footprints footprints,
+        IntList found
+    ) {
+
+        ws.reset();
+        if (found != null) {
+            found.clear();
+        }
+        int[] offsets = up ? graph.getUpOffsets() : graph.getDownOffsets();
+        int[] heads = up ? graph.getUpTargets() : graph.getDownSources();
+        double[] weights = up ? graph.getUpWeights() : graph.getDownWeights();
+        int[] edges = up ? graph.getUpEdges() : graph.getDownEdges();
+
+        ws.update(p, 0.0, -1, -1);
+        ws.getCandidates().update(p, 0.0);
+        while (!ws.getCandidates().isEmpty()) {
+            int u = ws.getCandidates().extractMin();
+            ws.settle(u);
+            if (transitIndices[u] >= 0) {
+                if (found != null) {
+                    found.add(u);
+                }
+                if (stopAtTransit) {
+                    continue;
+                }
+            } else if (footprints != null) {
+                footprints.add(p, cell(graph.getOrder()[u]));
+            }
+            double distance = ws.getDistance(u);
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int w = heads[i];
+                double d = distance + weights[i];
+                if (d < ws.getDistance(w)) {
+                    ws.update(w, d, u, edges[i]);
+                    ws.getCandidates().update(w, d);
+                }
+            }
+        }
+    }
+
+    private int cell(int node) {
+        CsrGraph base = graph.getChData().getGraph();
+        int x = Math.min(GRID_SIZE - 1, (int) ((base.lon(node) - minLon) / cellWidth));
+        int y = Math.min(GRID_SIZE - 1, (int) ((base.lat(node) - minLat) / cellHeight));
+        return y * GRID_SIZE + x;
+    }
+
+    private int[] transits(IntList found) {
+        int[] transits = new int[found.size()];
+        for (int i = 0; i < transits.length; i++) {
+            transits[i] = transitIndices[found.get(i)];
+        }
+        return transits;
+    }
+
+    private double[] distances(IntList found, SearchWorkspace ws) {
+        double[] distances = new double[found.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = ws.getDistance(found.get(i));
+        }
+        return distances;
+    }
+
+    /**
+     * Transit-to-transit distances. Transit nodes are the top of the hierarchy, so their full upward search
+     * spaces only contain transit nodes and the table is a CH many-to-many over them: backward spaces are put
+     * into buckets, each forward space scans the buckets of its nodes.
+     */
+    private double[] distanceTable(ThreadLocal<SearchWorkspace> workspaces) {
+
+        int first = graph.getNodeCount() - transitCount;
+        int[][] spaces = new int[transitCount][];
+        double[][] spaceDistances = new double[transitCount][];
+        IntStream.range(0, transitCount).parallel().forEach(j -> {
+            SearchWorkspace ws = workspaces.get();
+            IntList found = new IntList();
+            search(first + j, false, false, ws, null, found);
+            spaces[j] = transits(found);
+            spaceDistances[j] = distances(found, ws);
+        });
+
+        int[] bucketOffsets = new int[transitCount + 1];
+        for (int[] space : spaces) {
+            for (int x : space) {
+                bucketOffsets[x + 1]++;
+            }
+        }
+        for (int x = 0; x < transitCount; x++) {
+            bucketOffsets[x + 1] += bucketOffsets[x];
+        }
+        int[] bucketTargets = new int[bucketOffsets[transitCount]];
+        double[] bucketDistances = new double[bucketOffsets[transitCount]];
+        int[] fill = Arrays.copyOf(bucketOffsets, transitCount);
+        for (int j = 0; j < transitCount; j++) {
+            for (int e = 0; e < spaces[j].length; e++) {
+                int at = fill[spaces[j][e]]++;
+                bucketTargets[at] = j;
+                bucketDistances[at] = spaceDistances[j][e];
+            }
+        }
+
+        double[] table = new double[Math.multiplyExact(transitCount, transitCount)];
+        Arrays.fill(table, Double.POSITIVE_INFINITY);
+        IntStream.range(0, transitCount).parallel().forEach(i -> {
+            SearchWorkspace ws = workspaces.get();
+            IntList found = new IntList();
+            search(first + i, true, false, ws, null, found);
+            int row = i * transitCount;
+            for (int e = 0; e < found.size(); e++) {
+                int x = transitIndices[found.get(e)];
+                double head = ws.getDistance(found.get(e));
+                for (int b = bucketOffsets[x]; b < bucketOffsets[x + 1]; b++) {
+                    int j = bucketTargets[b];
+                    table[row + j] = Math.min(table[row + j], head + bucketDistances[b]);
+                }
+            }
+        });
+        return table;
+    }
+
+    /**
+     * Drops access nodes that another access node of the same node reaches more cheaply through the table.
+     */
+    private void prune(int[][] nodes, double[][] distances, int p, boolean up) {
+        int[] access = nodes[p];
+        double[] d = distances[p];
+        boolean[] dominated = new boolean[access.length];
+        int kept = access.length;
+        for (int i = 0; i < access.length; i++) {
+            for (int j = 0; j < access.length && !dominated[i]; j++) {
+                if (i != j) {
+                    double via = up
+                        ? d[j] + table[access[j] * transitCount + access[i]]
+                        : table[access[i] * transitCount + access[j]] + d[j];
+                    if (via < d[i]) {
+                        dominated[i] = true;
+                        kept--;
+                    }
+                }
+            }
+        }
+        int[] prunedNodes = new int[kept];
+        double[] prunedDistances = new double[kept];
+        for (int i = 0, k = 0; i < access.length; i++) {
+            if (!dominated[i]) {
+                prunedNodes[k] = access[i];
+                prunedDistances[k++] = d[i];
+            }
+        }
+        nodes[p] = prunedNodes;
+        distances[p] = prunedDistances;
+    }
+
+    /**
+     * Access nodes of one direction in flat columns indexed by rank position, with the search space
+     * footprints.
+     */
+    private static class Access {
+
+        private final Footprints footprints;
+        private int[] offsets;
+        private int[] nodes;
+        private double[] distances;
+
+        Access(int n) {
+            this.footprints = new Footprints(n);
+        }
+
+        void flatten(int[][] perNode, double[][] perNodeDistances) {
+            int n = perNode.length;
+            offsets = new int[n + 1];
+            for (int p = 0; p < n; p++) {
+                offsets[p + 1] = offsets[p] + perNode[p].length;
+            }
+            nodes = new int[offsets[n]];
+            distances = new double[offsets[n]];
+            for (int p = 0; p < n; p++) {
+                System.arraycopy(perNode[p], 0, nodes, offsets[p], perNode[p].length);
+                System.arraycopy(perNodeDistances[p], 0, distances, offsets[p], perNode[p].length);
+            }
+        }
+    }
+
+    /**
+     * Coarse footprints of search spaces: the graph's bounding box is split into a grid of
+     * {@code GRID_SIZE * GRID_SIZE} cells and every node keeps the bit set of the cells its search space
+     * touches. Two search spaces that share a node share that node's cell.
+     */
+    private static class Footprints {
+
+        private static final int WORDS = GRID_SIZE * GRID_SIZE / Long.SIZE;
+
+        private final long[] cells;
+
+        Footprints(int n) {
+            this.cells = new long[WORDS * n];
+        }
+
+        void add(int p, int cell) {
+            cells[WORDS * p + (cell >>> 6)] |= 1L << cell;
+        }
+
+        boolean intersects(int p, Footprints other, int q) {
+            for (int w = 0; w < WORDS; w++) {
+                if ((cells[WORDS * p + w] & other.cells[WORDS * q + w]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
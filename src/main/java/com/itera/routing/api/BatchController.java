@@ -0,0 +1,46 @@
+package com.itera.routing.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itera.routing.model.RouteRequest;
+import com.itera.routing.services.BatchRoutingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Streams one JSON line per route as soon as it is found, so the response is never held in memory. Lines are
+ * written on the request's own thread, never on a compute lane thread.
+ */
+@Slf4j
+@RestController
+@RequestMapping("route/batch")
+@RequiredArgsConstructor
+public class BatchController {
+
+    private final BatchRoutingService batchRoutingService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> batch(@RequestBody List<RouteRequest> requests) {
+        StreamingResponseBody body = out -> batchRoutingService.route(requests, result -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
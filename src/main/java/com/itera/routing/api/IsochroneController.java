@@ -0,0 +1,28 @@
+package com.itera.routing.api;
+
+import com.itera.routing.model.Isochrone;
+import com.itera.routing.services.ComputeLanes;
+import com.itera.routing.services.RoutingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("route/isochrone")
+@RequiredArgsConstructor
+public class IsochroneController {
+
+    private final RoutingService routingService;
+    private final ComputeLanes computeLanes;
+
+    @GetMapping
+    public List<Isochrone> isochrones(@RequestParam("from") long from, @RequestParam("budget") double[] budgets) {
+        return computeLanes.call(ComputeLanes.Lane.SEARCH, () -> routingService.findIsochrones(from, budgets));
+    }
+}
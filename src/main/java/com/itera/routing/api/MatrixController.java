@@ -0,0 +1,31 @@
+package com.itera.routing.api;
+
+import com.itera.routing.model.DistanceMatrix;
+import com.itera.routing.model.MatrixRequest;
+import com.itera.routing.services.ComputeLanes;
+import com.itera.routing.services.RoutingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequestMapping("route/matrix")
+@RequiredArgsConstructor
+public class MatrixController {
+
+    private final RoutingService routingService;
+    private final ComputeLanes computeLanes;
+
+    @PostMapping
+    public DistanceMatrix matrix(@RequestBody MatrixRequest request) {
+        return routingService.findMatrix(
+            request.getSources(),
+            request.getTargets(),
+            computeLanes.pool(ComputeLanes.Lane.MATRIX)
+        );
+    }
+}
@@ -0,0 +1,25 @@
+package com.itera.routing.api;
+
+import com.itera.routing.model.Customization;
+import com.itera.routing.model.MetricUpdate;
+import com.itera.routing.services.MetricService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequestMapping("route/metric")
+@RequiredArgsConstructor
+public class MetricController {
+
+    private final MetricService metricService;
+
+    @PostMapping
+    public Customization update(@RequestBody MetricUpdate update) {
+        return metricService.update(update);
+    }
+}
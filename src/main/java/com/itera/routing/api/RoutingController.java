@@ -1,7 +1,9 @@
 package com.itera.routing.api;
 
 import com.itera.routing.algos.Dijkstra;
+import com.itera.routing.model.Algorithm;
 import com.itera.routing.model.ShortestPath;
+import com.itera.routing.services.ComputeLanes;
 import com.itera.routing.services.RoutingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,35 +19,156 @@ import org.springframework.web.bind.annotation.RestController;
 public class RoutingController {
 
     private final RoutingService routingService;
+    private final ComputeLanes computeLanes;
 
     @GetMapping(value = "/dijkstra/fwd")
     public ShortestPath findDijkstra(@RequestParam("from") long from, @RequestParam("to") long to) {
-        return routingService.findByDijkstra(from, to, Dijkstra.Direction.FORWARD);
+        return computeLanes.call(
+            Algorithm.DIJKSTRA_FWD,
+            from,
+            to,
+            () -> routingService.findByDijkstra(from, to, Dijkstra.Direction.FORWARD)
+        );
     }
 
     @GetMapping(value = "/dijkstra/bckg")
     public ShortestPath findDijkstraBackward(@RequestParam("from") long from, @RequestParam("to") long to) {
-        return routingService.findByDijkstra(from, to, Dijkstra.Direction.BACKWARD);
+        return computeLanes.call(
+            Algorithm.DIJKSTRA_BCKG,
+            from,
+            to,
+            () -> routingService.findByDijkstra(from, to, Dijkstra.Direction.BACKWARD)
+        );
     }
 
     @GetMapping(value = "/dijkstra/bidir")
     public ShortestPath findDijkstraBidirectional(@RequestParam("from") long from, @RequestParam("to") long to) {
-        return routingService.findByBidirectionalDijkstra(from, to);
+        return computeLanes.call(
+            Algorithm.DIJKSTRA_BIDIR,
+            from,
+            to,
+            () -> routingService.findByBidirectionalDijkstra(from, to)
+        );
     }
 
     @GetMapping(value = "/dijkstra/ch")
     public ShortestPath findDijkstraCH(@RequestParam("from") long from, @RequestParam("to") long to) {
-        return routingService.findByCHDijkstra(from, to);
+        return computeLanes.call(
+            Algorithm.DIJKSTRA_CH,
+            from,
+            to,
+            () -> routingService.findByCHDijkstra(from, to)
+        );
+    }
+
+    @GetMapping(value = "/hl")
+    public ShortestPath findHubLabels(@RequestParam("from") long from, @RequestParam("to") long to) {
+        return computeLanes.call(
+            Algorithm.HL,
+            from,
+            to,
+            () -> routingService.findByHubLabels(from, to)
+        );
+    }
+
+    @GetMapping(value = "/tnr")
+    public ShortestPath findTransitNodes(@RequestParam("from") long from, @RequestParam("to") long to) {
+        return computeLanes.call(
+            Algorithm.TNR,
+            from,
+            to,
+            () -> routingService.findByTransitNodes(from, to)
+        );
+    }
+
+    @GetMapping(value = "/alt/core")
+    public ShortestPath findCoreAlt(@RequestParam("from") long from, @RequestParam("to") long to) {
+        return computeLanes.call(
+            Algorithm.ALT_CORE,
+            from,
+            to,
+            () -> routingService.findByCoreAlt(from, to)
+        );
+    }
+
+    @GetMapping(value = "/reach")
+    public ShortestPath findReach(@RequestParam("from") long from, @RequestParam("to") long to) {
+        return computeLanes.call(
+            Algorithm.REACH,
+            from,
+            to,
+            () -> routingService.findByReach(from, to)
+        );
+    }
+
+    @GetMapping(value = "/reach/alt")
+    public ShortestPath findReachAlt(@RequestParam("from") long from, @RequestParam("to") long to) {
+        return computeLanes.call(
+            Algorithm.REACH_ALT,
+            from,
+            to,
+            () -> routingService.findByReachAlt(from, to)
+        );
+    }
+
+    @GetMapping(value = "/arcflags")
+    public ShortestPath findArcFlags(@RequestParam("from") long from, @RequestParam("to") long to) {
+        return computeLanes.call(
+            Algorithm.ARCFLAGS,
+            from,
+            to,
+            () -> routingService.findByArcFlags(from, to)
+        );
+    }
+
+    @GetMapping(value = "/crp")
+    public ShortestPath findCrp(@RequestParam("from") long from, @RequestParam("to") long to) {
+        return computeLanes.call(
+            Algorithm.CRP,
+            from,
+            to,
+            () -> routingService.findByCrp(from, to)
+        );
     }
 
     @GetMapping(value = "/astar")
     public ShortestPath findAstar(@RequestParam("from") long from, @RequestParam("to") long to) {
-        return routingService.findByAstar(from, to);
+        return computeLanes.call(
+            Algorithm.ASTAR,
+            from,
+            to,
+            () -> routingService.findByAstar(from, to)
+        );
+    }
+
+    @GetMapping(value = "/astar/bidir")
+    public ShortestPath findAstarBidirectional(@RequestParam("from") long from, @RequestParam("to") long to) {
+        return computeLanes.call(
+            Algorithm.ASTAR_BIDIR,
+            from,
+            to,
+            () -> routingService.findByBidirectionalAstar(from, to)
+        );
     }
 
     @GetMapping(value = "/alt")
     public ShortestPath findAlt(@RequestParam("from") long from, @RequestParam("to") long to) {
-        return routingService.findByAlt(from, to);
+        return computeLanes.call(
+            Algorithm.ALT,
+            from,
+            to,
+            () -> routingService.findByAlt(from, to)
+        );
+    }
+
+    @GetMapping(value = "/alt/bidir")
+    public ShortestPath findAltBidirectional(@RequestParam("from") long from, @RequestParam("to") long to) {
+        return computeLanes.call(
+            Algorithm.ALT_BIDIR,
+            from,
+            to,
+            () -> routingService.findByBidirectionalAlt(from, to)
+        );
     }
 
 }
@@ -0,0 +1,40 @@
+package com.itera.routing.api;
+
+import com.itera.routing.services.EngineDisabledException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@Slf4j
+@RestControllerAdvice
+public class RoutingExceptionHandler {
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ProblemDetail rejected(RejectedExecutionException e) {
+        log.debug("Search rejected: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, "Routing is at capacity, retry later");
+    }
+
+    /**
+     * Invalid input of the client: unknown nodes or edges, invalid budgets or weights, too large matrices.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ProblemDetail invalid(IllegalArgumentException e) {
+        log.debug("Invalid request: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    @ExceptionHandler(EngineDisabledException.class)
+    @ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+    public ProblemDetail disabled(EngineDisabledException e) {
+        log.debug("Engine disabled: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_IMPLEMENTED, e.getMessage());
+    }
+}
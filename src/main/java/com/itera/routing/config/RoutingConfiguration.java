@@ -1,24 +1,229 @@
 package com.itera.routing.config;
 
+import com.itera.routing.algos.SearchWorkspacePool;
+import com.itera.routing.algos.arcflags.ArcFlags;
+import com.itera.routing.algos.alt.ALTData;
+import com.itera.routing.algos.alt.CoreALT;
+import com.itera.routing.algos.ch.CCHTopology;
 import com.itera.routing.algos.ch.CHData;
+import com.itera.routing.algos.ch.CHEngine;
 import com.itera.routing.algos.ch.CHLoader;
+import com.itera.routing.algos.ch.CHPreprocessor;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.algos.ch.ShortcutUnpacker;
+import com.itera.routing.algos.crp.CRPEngine;
+import com.itera.routing.algos.crp.CRPOverlay;
+import com.itera.routing.algos.hl.HubLabels;
+import com.itera.routing.algos.isochrone.IsochroneSearch;
+import com.itera.routing.algos.reach.ReachBounds;
+import com.itera.routing.algos.tnr.TransitNodeRouting;
 import com.itera.routing.loaders.GraphLoader;
-import com.itera.routing.topology.Graph;
+import com.itera.routing.loaders.GraphSnapshot;
+import com.itera.routing.services.ComputeLanes;
+import com.itera.routing.services.ComputePool;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+
 @Slf4j
 @Configuration
 public class RoutingConfiguration {
 
     @Bean
-    public Graph graph(GraphLoader loader) {
-        return loader.load();
+    @ConditionalOnExpression("!'${path.snapshot:}'.isEmpty()")
+    public GraphSnapshot graphSnapshot(@Value("${path.snapshot}") String path) throws IOException {
+        return GraphSnapshot.map(Paths.get(path));
+    }
+
+    @Bean
+    public CsrGraph graph(ObjectProvider<GraphLoader> loader, ObjectProvider<GraphSnapshot> snapshot) {
+        GraphSnapshot s = snapshot.getIfAvailable();
+        if (s != null) {
+            return s.getGraph();
+        }
+        return loader.getObject().loadCsr();
+    }
+
+    @Bean
+    public SearchWorkspacePool searchWorkspacePool(
+        CsrGraph graph,
+        @Value("${routing.queue:DARY}") IndexedPriorityQueue.Type queueType
+    ) {
+        return new SearchWorkspacePool(graph.getNodeCount(), queueType);
+    }
+
+    /**
+     * Lane sizes of 0 threads split the cores instead of adding up past them: searches and matrices get a
+     * quarter of the cores each, queries get the cores the other lanes leave. Every lane keeps at least one
+     * thread, so hosts with fewer than four cores are oversubscribed.
+     */
+    @Bean
+    public ComputeLanes computeLanes(
+        CsrGraph graph,
+        @Value("${routing.lanes.query.threads:0}") int queryThreads,
+        @Value("${routing.lanes.query.queue:64}") int queryQueue,
+        @Value("${routing.lanes.search.threads:0}") int searchThreads,
+        @Value("${routing.lanes.search.queue:32}") int searchQueue,
+        @Value("${routing.lanes.outlier.threads:1}") int outlierThreads,
+        @Value("${routing.lanes.outlier.queue:8}") int outlierQueue,
+        @Value("${routing.lanes.outlier.distance:100000}") double outlierDistance,
+        @Value("${routing.lanes.matrix.threads:0}") int matrixThreads,
+        @Value("${routing.lanes.matrix.queue:16}") int matrixQueue
+    ) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int search = searchThreads > 0 ? searchThreads : Math.max(1, cores / 4);
+        int outlier = Math.max(1, outlierThreads);
+        int matrix = matrixThreads > 0 ? matrixThreads : Math.max(1, cores / 4);
+        int query = queryThreads > 0 ? queryThreads : Math.max(1, cores - search - outlier - matrix);
+        if (query + search + outlier + matrix > cores) {
+            log.warn(
+                "Compute lanes have {} threads for {} cores; busy lanes share the cores",
+                query + search + outlier + matrix,
+                cores
+            );
+        }
+        Map<ComputeLanes.Lane, ComputePool> pools = new EnumMap<>(ComputeLanes.Lane.class);
+        pools.put(ComputeLanes.Lane.QUERY, new ComputePool("query", query, queryQueue));
+        pools.put(ComputeLanes.Lane.SEARCH, new ComputePool("search", search, searchQueue));
+        pools.put(ComputeLanes.Lane.OUTLIER, new ComputePool("outlier", outlier, outlierQueue));
+        pools.put(ComputeLanes.Lane.MATRIX, new ComputePool("matrix", matrix, matrixQueue));
+        return new ComputeLanes(graph, outlierDistance, pools);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "routing.ch.mode", havingValue = "CCH")
+    public CCHTopology cchTopology(CsrGraph graph) {
+        return new CCHTopology(graph);
+    }
+
+    @Bean
+    public CHData chData(
+        CHLoader loader,
+        CsrGraph graph,
+        ObjectProvider<GraphSnapshot> snapshot,
+        ObjectProvider<CCHTopology> topology,
+        @Value("${routing.ch.build:false}") boolean build,
+        @Value("${path.shortcuts}") String pathShortcuts,
+        @Value("${path.hierarchy}") String pathHierarchy,
+        @Value("${path.definitions}") String pathDefinitions
+    ) throws Exception {
+        CCHTopology cch = topology.getIfAvailable();
+        if (cch != null) {
+            return cch.customize(cch.getWeights());
+        }
+        GraphSnapshot s = snapshot.getIfAvailable();
+        if (s != null && s.getChData() != null) {
+            return s.getChData();
+        }
+        if (build) {
+            CHPreprocessor preprocessor = new CHPreprocessor(graph);
+            CHData chData = preprocessor.build();
+            preprocessor.write(pathShortcuts, pathHierarchy, pathDefinitions);
+            return chData;
+        }
+        return loader.load(graph);
+    }
+
+    @Bean
+    public CHQueryGraph chQueryGraph(CHData chData) {
+        return new CHQueryGraph(chData);
+    }
+
+    @Bean
+    public ShortcutUnpacker shortcutUnpacker(CHData chData, @Value("${routing.ch.unpack-cache:0}") int cacheSize) {
+        return new ShortcutUnpacker(chData, cacheSize);
+    }
+
+    @Bean
+    public CHEngine chEngine(
+        CHQueryGraph chQueryGraph,
+        ShortcutUnpacker shortcutUnpacker,
+        @Value("${routing.ch.unpack-cache:0}") int cacheSize
+    ) {
+        return new CHEngine(chQueryGraph, shortcutUnpacker, cacheSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "routing.hl.enabled", havingValue = "true")
+    public HubLabels hubLabels(CHQueryGraph chQueryGraph, ObjectProvider<GraphSnapshot> snapshot) {
+        GraphSnapshot s = snapshot.getIfAvailable();
+        if (s != null && s.getHubLabels() != null && s.getChData() == chQueryGraph.getChData()) {
+            return s.getHubLabels();
+        }
+        return HubLabels.build(chQueryGraph);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${routing.tnr.transit-nodes:0} > 0")
+    public TransitNodeRouting transitNodeRouting(
+        CHQueryGraph chQueryGraph,
+        @Value("${routing.tnr.transit-nodes}") int transitNodes
+    ) {
+        return new TransitNodeRouting(chQueryGraph, transitNodes);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${routing.core-alt.core-fraction:0} > 0")
+    public CoreALT coreALT(
+        CHQueryGraph chQueryGraph,
+        @Value("${routing.core-alt.core-fraction}") double coreFraction,
+        @Value("${routing.core-alt.landmarks:16}") int landmarks
+    ) {
+        return new CoreALT(chQueryGraph, coreFraction, landmarks);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${routing.crp.cell-size:0} > 0")
+    public CRPEngine crpEngine(
+        CsrGraph graph,
+        SearchWorkspacePool workspaces,
+        @Value("${routing.crp.cell-size}") int cellSize,
+        @Value("${routing.crp.levels:3}") int levels
+    ) {
+        double[] weights = new double[graph.getEdgeCount()];
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] = graph.weight(e);
+        }
+        return new CRPEngine(new CRPOverlay(graph, cellSize, levels, workspaces), weights);
+    }
+
+    @Bean
+    public IsochroneSearch isochroneSearch(
+        CsrGraph graph,
+        @Value("${routing.isochrone.phast-budget:0}") double phastBudget
+    ) {
+        return new IsochroneSearch(graph, phastBudget);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${routing.reach.limit:0} > 0")
+    public ReachBounds reachBounds(CsrGraph graph, @Value("${routing.reach.limit}") double limit) {
+        return new ReachBounds(graph, limit);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${routing.arcflags.cells:0} > 0")
+    public ArcFlags arcFlags(CsrGraph graph, @Value("${routing.arcflags.cells}") int cells) {
+        return new ArcFlags(graph, cells);
     }
 
     @Bean
-    public CHData chData(CHLoader loader) throws Exception {
-        return loader.load();
+    public ALTData altData(@Value("${path.alt}") String path, CsrGraph graph, ObjectProvider<GraphSnapshot> snapshot) {
+        GraphSnapshot s = snapshot.getIfAvailable();
+        if (s != null && s.getAltData() != null) {
+            return s.getAltData();
+        }
+        return ALTData.load(path, graph);
     }
 }
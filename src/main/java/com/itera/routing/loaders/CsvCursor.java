@@ -0,0 +1,180 @@
+package com.itera.routing.loaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Field cursor over a byte range of a CSV file. Numbers are parsed directly from the bytes; quoted fields
+ * are supported, escaped quotes inside them are not unescaped.
+ */
+class CsvCursor {
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+
+    private int fieldStart;
+    private int fieldEnd;
+
+    CsvCursor(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * Skips empty lines and positions the cursor at the first field of the next record.
+     */
+    boolean nextRecord() {
+        while (position < limit && (buffer.get(position) == '\n' || buffer.get(position) == '\r')) {
+            position++;
+        }
+        return position < limit;
+    }
+
+    /**
+     * Moves past the rest of the current record.
+     */
+    void endRecord() {
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        if (position < limit) {
+            position++;
+        }
+    }
+
+    void skip(int fields) {
+        for (int i = 0; i < fields; i++) {
+            field();
+        }
+    }
+
+    long nextLong() {
+        field();
+        int i = fieldStart;
+        boolean negative = i < fieldEnd && buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == fieldEnd) {
+            throw new NumberFormatException("Empty number field: " + fieldString());
+        }
+        long value = 0;
+        for (; i < fieldEnd; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not an integer: " + fieldString());
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Fast path for plain decimals with up to 15 significant digits, which are exact as long mantissa divided
+     * by a power of ten. Anything else goes through {@link Double#parseDouble(String)}.
+     */
+    double nextDouble() {
+        field();
+        int i = fieldStart;
+        boolean negative = false;
+        if (i < fieldEnd && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean any = false;
+        for (; i < fieldEnd; i++) {
+            byte c = buffer.get(i);
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (fraction) {
+                    scale++;
+                }
+                if (mantissa == 0 && c == '0') {
+                    continue;
+                }
+                if (++digits > 15) {
+                    return Double.parseDouble(fieldString());
+                }
+                mantissa = mantissa * 10 + (c - '0');
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return Double.parseDouble(fieldString());
+            }
+        }
+        if (!any || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(fieldString());
+        }
+
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Length in bytes of the next field, leaves the cursor after it.
+     */
+    int nextLength() {
+        field();
+        return fieldEnd - fieldStart;
+    }
+
+    /**
+     * Copies the next field into the target array and returns its length.
+     */
+    int nextBytes(byte[] target, int offset) {
+        field();
+        int length = fieldEnd - fieldStart;
+        buffer.get(fieldStart, target, offset, length);
+        return length;
+    }
+
+    private String fieldString() {
+        byte[] bytes = new byte[fieldEnd - fieldStart];
+        buffer.get(fieldStart, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void field() {
+        if (position < limit && buffer.get(position) == '"') {
+            fieldStart = ++position;
+            while (position < limit) {
+                if (buffer.get(position) == '"') {
+                    if (position + 1 < limit && buffer.get(position + 1) == '"') {
+                        position += 2;
+                        continue;
+                    }
+                    break;
+                }
+                position++;
+            }
+            fieldEnd = position;
+            while (position < limit && buffer.get(position) != ',' && buffer.get(position) != '\n') {
+                position++;
+            }
+        } else {
+            fieldStart = position;
+            while (position < limit && buffer.get(position) != ',' && buffer.get(position) != '\n') {
+                position++;
+            }
+            fieldEnd = position;
+            if (fieldEnd > fieldStart && buffer.get(fieldEnd - 1) == '\r') {
+                fieldEnd--;
+            }
+        }
+        if (position < limit && buffer.get(position) == ',') {
+            position++;
+        }
+    }
+
+}
@@ -1,56 +1,93 @@
 package com.itera.routing.loaders;
 
+import com.itera.routing.topology.CsrGraph;
 import com.itera.routing.topology.Edge;
 import com.itera.routing.topology.Graph;
 import com.itera.routing.topology.Node;
-import com.opencsv.CSVParser;
-import com.opencsv.CSVParserBuilder;
-import io.vavr.control.Try;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.nio.file.Files;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 
+/**
+ * Reads the node and edge CSV files in parallel. Each file is cut into byte ranges on line boundaries, every
+ * range is memory-mapped and parsed twice: once to count records and id bytes, once to write them into
+ * pre-sized column arrays at the range's offset. Only the output columns live on the heap.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 @ConditionalOnProperty(value = {"path.nodes", "path.edges"})
 public class CsvGraphLoader implements GraphLoader {
 
+    private static final long RANGE_SIZE = 64L << 20;
+    private static final int EDGE_WEIGHT = 6;
+
     @Value("${path.nodes}")
     private final String nodesPath;
 
     @Value("${path.edges}")
     private final String edgesPath;
 
-    private CSVParser parser = new CSVParserBuilder()
-        .withSeparator(',')
-        .withQuoteChar('"')
-        .build();
+    private record Range(long start, long end) {
+    }
+
+    private static class NodeColumns {
+        long[] ids;
+        double[] lons;
+        double[] lats;
+    }
+
+    private static class EdgeColumns {
+        long[] from;
+        long[] to;
+        double[] weights;
+        int[] maxSpeeds;
+        byte[] idBytes;
+        int[] idOffsets;
+    }
 
     public Graph load() {
 
         Graph graph = new Graph();
         try {
-            log.info("reading nodes from: {}", nodesPath);
-            Map<Long, Node> nodes = Files.readAllLines(Paths.get(nodesPath)).stream()
-                .skip(1)
-                .map(line -> toNode(line))
-                .collect(Collectors.toMap(n -> n.getId(), n -> n));
-            graph.getNodes().putAll(nodes);
-
-            log.info("reading edges from: {}", edgesPath);
-            Map<String, Edge> edges = Files.readAllLines(Paths.get(edgesPath)).stream()
-                .skip(1)
-                .map(line -> toEdge(line, graph))
-                .collect(Collectors.toMap(e -> e.getId(), e -> e));
-            graph.getEdges().putAll(edges);
+            NodeColumns nodes = readNodes();
+            for (int i = 0; i < nodes.ids.length; i++) {
+                graph.getNodes().put(nodes.ids[i], new Node(nodes.ids[i], nodes.lons[i], nodes.lats[i]));
+            }
+
+            EdgeColumns edges = readEdges();
+            for (int e = 0; e < edges.from.length; e++) {
+                Edge edge = new Edge(
+                    new String(
+                        edges.idBytes,
+                        edges.idOffsets[e],
+                        edges.idOffsets[e + 1] - edges.idOffsets[e],
+                        StandardCharsets.UTF_8
+                    ),
+                    graph.getNode(edges.from[e]),
+                    graph.getNode(edges.to[e]),
+                    edges.weights[e],
+                    edges.maxSpeeds[e]
+                );
+
+                edge.getFrom().getOutEdges().add(edge);
+                edge.getTo().getInEdges().add(edge);
+                graph.getEdges().put(edge.getId(), edge);
+            }
 
         } catch (Exception e) {
             log.error("cannot create graph", e);
@@ -59,24 +96,168 @@ public class CsvGraphLoader implements GraphLoader {
         return graph;
     }
 
-    private Edge toEdge(String line, Graph graph) {
-        String[] data = Try.of(() -> parser.parseLine(line)).get();
+    @Override
+    public CsrGraph loadCsr() {
+
+        try {
+            NodeColumns nodes = readNodes();
+            EdgeColumns edges = readEdges();
+            return CsrGraph.build(
+                nodes.ids,
+                nodes.lons,
+                nodes.lats,
+                edges.from,
+                edges.to,
+                edges.weights,
+                edges.idBytes,
+                edges.idOffsets
+            );
+        } catch (Exception e) {
+            log.error("cannot create graph", e);
+            return CsrGraph.build(new long[0], new double[0], new double[0], new long[0], new long[0], new double[0], new String[0]);
+        }
+    }
+
+    private NodeColumns readNodes() throws IOException {
+
+        log.info("reading nodes from: {}", nodesPath);
+        Path path = Paths.get(nodesPath);
+        List<Range> ranges = split(path);
+        int[] counts = new int[ranges.size() + 1];
+        parallel(path, ranges, (i, cursor) -> {
+            while (cursor.nextRecord()) {
+                counts[i + 1]++;
+                cursor.endRecord();
+            }
+        });
+        prefixSum(counts);
+
+        NodeColumns nodes = new NodeColumns();
+        nodes.ids = new long[counts[ranges.size()]];
+        nodes.lons = new double[nodes.ids.length];
+        nodes.lats = new double[nodes.ids.length];
+        parallel(path, ranges, (i, cursor) -> {
+            int n = counts[i];
+            while (cursor.nextRecord()) {
+                nodes.ids[n] = cursor.nextLong();
+                nodes.lats[n] = cursor.nextDouble();
+                nodes.lons[n] = cursor.nextDouble();
+                cursor.endRecord();
+                n++;
+            }
+        });
+
+        log.info("nodes: {}", nodes.ids.length);
+        return nodes;
+    }
+
+    private EdgeColumns readEdges() throws IOException {
+
+        log.info("reading edges from: {}", edgesPath);
+        Path path = Paths.get(edgesPath);
+        List<Range> ranges = split(path);
+        int[] counts = new int[ranges.size() + 1];
+        long[] idLengths = new long[ranges.size() + 1];
+        parallel(path, ranges, (i, cursor) -> {
+            while (cursor.nextRecord()) {
+                counts[i + 1]++;
+                idLengths[i + 1] += cursor.nextLength();
+                cursor.endRecord();
+            }
+        });
+        prefixSum(counts);
+        for (int i = 0; i < ranges.size(); i++) {
+            idLengths[i + 1] += idLengths[i];
+        }
+        if (idLengths[ranges.size()] > Integer.MAX_VALUE) {
+            throw new IOException("Edge ids exceed 2GB");
+        }
+
+        int m = counts[ranges.size()];
+        EdgeColumns edges = new EdgeColumns();
+        edges.from = new long[m];
+        edges.to = new long[m];
+        edges.weights = new double[m];
+        edges.maxSpeeds = new int[m];
+        edges.idBytes = new byte[(int) idLengths[ranges.size()]];
+        edges.idOffsets = new int[m + 1];
+        parallel(path, ranges, (i, cursor) -> {
+            int e = counts[i];
+            int idOffset = (int) idLengths[i];
+            while (cursor.nextRecord()) {
+                edges.idOffsets[e] = idOffset;
+                idOffset += cursor.nextBytes(edges.idBytes, idOffset);
+                edges.from[e] = cursor.nextLong();
+                edges.to[e] = cursor.nextLong();
+                cursor.skip(EDGE_WEIGHT - 3);
+                edges.weights[e] = cursor.nextDouble();
+                edges.maxSpeeds[e] = (int) cursor.nextDouble();
+                cursor.endRecord();
+                e++;
+            }
+        });
+        edges.idOffsets[m] = edges.idBytes.length;
+
+        log.info("edges: {}", m);
+        return edges;
+    }
+
+    /**
+     * Splits the file after the header line into ranges of roughly {@link #RANGE_SIZE} bytes, each one
+     * starting at the beginning of a line.
+     */
+    private List<Range> split(Path path) throws IOException {
 
-        Edge edge = new Edge(
-            data[0],
-            graph.getNode(Long.parseLong(data[1])),
-            graph.getNode(Long.parseLong(data[2])),
-            Double.parseDouble(data[6]),
-            Double.valueOf(data[7]).intValue()
-        );
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Range> ranges = new ArrayList<>();
+            long start = lineEnd(channel, 0, size);
+            while (start < size) {
+                long end = start + RANGE_SIZE >= size ? size : lineEnd(channel, start + RANGE_SIZE, size);
+                ranges.add(new Range(start, end));
+                start = end;
+            }
+            return ranges;
+        }
+    }
+
+    private long lineEnd(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
 
-        edge.getFrom().getOutEdges().add(edge);
-        edge.getTo().getInEdges().add(edge);
-        return edge;
+    @FunctionalInterface
+    private interface RangeParser {
+        void parse(int range, CsvCursor cursor);
     }
 
-    private Node toNode(String line) {
-        String[] data = Try.of(() -> parser.parseLine(line)).get();
-        return new Node(Long.parseLong(data[0]), Double.parseDouble(data[2]), Double.parseDouble(data[1]));
+    private void parallel(Path path, List<Range> ranges, RangeParser parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            IntStream.range(0, ranges.size()).parallel().forEach(i -> {
+                Range range = ranges.get(i);
+                try {
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start(), range.end() - range.start());
+                    parser.parse(i, new CsvCursor(buffer));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void prefixSum(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
     }
 }
@@ -1,8 +1,13 @@
 package com.itera.routing.loaders;
 
+import com.itera.routing.topology.CsrGraph;
 import com.itera.routing.topology.Graph;
 
 public interface GraphLoader {
 
     Graph load();
+
+    default CsrGraph loadCsr() {
+        return CsrGraph.of(load());
+    }
 }
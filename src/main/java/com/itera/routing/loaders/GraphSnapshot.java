@@ -0,0 +1,160 @@
+package com.itera.routing.loaders;
+
+import com.itera.routing.algos.alt.ALTData;
+import com.itera.routing.algos.ch.CHData;
+import com.itera.routing.algos.hl.HubLabels;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.SnapshotReader;
+import com.itera.routing.utils.SnapshotWriter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+
+/**
+ * Versioned binary snapshot of the routing data: base graph, CH data, ALT landmarks and hub labels. The file
+ * is mapped, not parsed, so loading costs a few syscalls regardless of the graph size.
+ * <p>
+ * Layout (little-endian, arrays 8-byte aligned): magic, version, flags, base graph, [CH], [ALT], [HL].
+ * Hub labels need the CH section they were derived from.
+ */
+@Slf4j
+@Getter
+@RequiredArgsConstructor
+public class GraphSnapshot {
+
+    static final int MAGIC = 0x47525449;
+    static final int VERSION = 4;
+
+    private static final int HAS_CH = 1;
+    private static final int HAS_ALT = 2;
+    private static final int HAS_HL = 4;
+
+    private final CsrGraph graph;
+    private final CHData chData;
+    private final ALTData altData;
+    private final HubLabels hubLabels;
+
+    public static GraphSnapshot map(Path path) throws IOException {
+
+        long start = System.currentTimeMillis();
+        try (SnapshotReader in = new SnapshotReader(path)) {
+
+            int magic = in.readInt();
+            int version = in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a graph snapshot: " + path);
+            }
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version %s, expected %s".formatted(version, VERSION));
+            }
+            int flags = in.readInt();
+
+            CsrGraph graph = CsrGraph.read(in);
+            int n = graph.getNodeCount();
+
+            CHData chData = null;
+            if ((flags & HAS_CH) != 0) {
+                IntBuffer ranks = in.mapInts(n);
+                CsrGraph shortcuts = graph.readEdges(in);
+                IntBuffer shortcutFirst = in.mapInts(shortcuts.getEdgeCount());
+                IntBuffer shortcutSecond = in.mapInts(shortcuts.getEdgeCount());
+                chData = new CHData(graph, shortcuts, ranks, shortcutFirst, shortcutSecond);
+            }
+
+            ALTData altData = null;
+            if ((flags & HAS_ALT) != 0) {
+                altData = readAlt(in, graph);
+            }
+
+            HubLabels hubLabels = null;
+            if ((flags & HAS_HL) != 0) {
+                hubLabels = HubLabels.read(in, chData);
+            }
+
+            log.info("snapshot {} mapped in {} ms", path, System.currentTimeMillis() - start);
+            return new GraphSnapshot(graph, chData, altData, hubLabels);
+        }
+    }
+
+    public static void write(
+        Path path,
+        CsrGraph graph,
+        CHData chData,
+        ALTData altData,
+        HubLabels hubLabels
+    ) throws IOException {
+
+        if (hubLabels != null && (chData == null || hubLabels.getChData() != chData)) {
+            throw new IllegalArgumentException("Hub labels are not derived from the exported CH data");
+        }
+
+        try (SnapshotWriter out = new SnapshotWriter(path)) {
+
+            int flags = (chData != null ? HAS_CH : 0)
+                | (altData != null ? HAS_ALT : 0)
+                | (hubLabels != null ? HAS_HL : 0);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(flags);
+
+            log.info("writing base graph");
+            graph.write(out);
+
+            if (chData != null) {
+                log.info("writing CH data");
+                if (chData.getGraph() != graph) {
+                    throw new IllegalArgumentException("CH data is not an overlay of the exported graph");
+                }
+                out.writeInts(chData.getRanks());
+                chData.getShortcuts().writeEdges(out);
+                out.writeInts(chData.getShortcutFirst());
+                out.writeInts(chData.getShortcutSecond());
+            }
+
+            if (altData != null) {
+                log.info("writing ALT data");
+                if (altData.getGraph() != graph) {
+                    throw new IllegalArgumentException("ALT data does not index the exported graph");
+                }
+                writeAlt(out, altData);
+            }
+
+            if (hubLabels != null) {
+                log.info("writing hub labels");
+                hubLabels.write(out);
+            }
+        }
+
+        log.info("snapshot written to {}", path);
+    }
+
+    private static void writeAlt(SnapshotWriter out, ALTData altData) throws IOException {
+
+        out.writeInt(altData.getLandmarkCount());
+        out.writeInts(altData.getLandmarks());
+        for (int l = 0; l < altData.getLandmarkCount(); l++) {
+            out.writeFloats(altData.getFromLandmark()[l]);
+            out.writeFloats(altData.getToLandmark()[l]);
+        }
+    }
+
+    private static ALTData readAlt(SnapshotReader in, CsrGraph graph) throws IOException {
+
+        int n = graph.getNodeCount();
+        int count = in.readInt();
+        IntBuffer landmarks = in.mapInts(count);
+        FloatBuffer[] fromLandmark = new FloatBuffer[count];
+        FloatBuffer[] toLandmark = new FloatBuffer[count];
+        for (int l = 0; l < count; l++) {
+            fromLandmark[l] = in.mapFloats(n);
+            toLandmark[l] = in.mapFloats(n);
+        }
+        return new ALTData(graph, landmarks, fromLandmark, toLandmark);
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.itera.routing.loaders;
+
+import com.itera.routing.algos.alt.ALTData;
+import com.itera.routing.algos.ch.CHData;
+import com.itera.routing.algos.hl.HubLabels;
+import com.itera.routing.topology.CsrGraph;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+
+/**
+ * Writes the loaded routing data into a {@link GraphSnapshot} and stops the application, e.g.
+ * {@code java -jar routing.jar --snapshot.export=data/sk.snapshot}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty("snapshot.export")
+public class SnapshotExporter implements ApplicationRunner {
+
+    @Value("${snapshot.export}")
+    private final String exportPath;
+
+    private final CsrGraph graph;
+    private final CHData chData;
+    private final ALTData altData;
+    private final ObjectProvider<HubLabels> hubLabels;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        GraphSnapshot.write(
+            Paths.get(exportPath),
+            graph,
+            chData,
+            altData.getLandmarkCount() == 0 ? null : altData,
+            hubLabels.getIfAvailable()
+        );
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,22 @@
+package com.itera.routing.model;
+
+/**
+ * Search algorithms by their {@code /route/find} endpoint.
+ */
+public enum Algorithm {
+    DIJKSTRA_FWD,
+    DIJKSTRA_BCKG,
+    DIJKSTRA_BIDIR,
+    DIJKSTRA_CH,
+    HL,
+    TNR,
+    REACH,
+    REACH_ALT,
+    ARCFLAGS,
+    CRP,
+    ASTAR,
+    ASTAR_BIDIR,
+    ALT,
+    ALT_BIDIR,
+    ALT_CORE
+}
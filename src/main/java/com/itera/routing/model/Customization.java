@@ -0,0 +1,16 @@
+package com.itera.routing.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class Customization {
+
+    private int changedEdges;
+    private int shortcuts;
+    private int cells;
+    private long millis;
+}
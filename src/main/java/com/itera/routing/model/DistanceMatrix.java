@@ -0,0 +1,21 @@
+package com.itera.routing.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Distances indexed by {@code [source][target]} in request order; unreachable pairs hold
+ * {@link Double#MAX_VALUE} like {@link ShortestPath#getLength()}.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class DistanceMatrix {
+
+    private List<Long> sources;
+    private List<Long> targets;
+    private double[][] distances;
+}
@@ -0,0 +1,21 @@
+package com.itera.routing.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Nodes reachable within a budget and the convex hull around them as a closed ring of {@code [lon, lat]}
+ * points.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class Isochrone {
+
+    private double budget;
+    private List<Long> nodes;
+    private List<double[]> boundary;
+}
@@ -0,0 +1,17 @@
+package com.itera.routing.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class MatrixRequest {
+
+    private List<Long> sources = new ArrayList<>();
+    private List<Long> targets = new ArrayList<>();
+}
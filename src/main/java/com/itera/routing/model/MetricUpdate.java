@@ -0,0 +1,24 @@
+package com.itera.routing.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Edge weight changes applied by a CCH or CRP customization. Changes accumulate over updates unless {@code reset}
+ * starts again from the loaded weights.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class MetricUpdate {
+
+    private boolean reset;
+    private Map<String, Double> weights = new HashMap<>();
+    private List<String> closed = new ArrayList<>();
+}
@@ -0,0 +1,15 @@
+package com.itera.routing.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class RouteRequest {
+
+    private long from;
+    private long to;
+    private Algorithm algorithm = Algorithm.DIJKSTRA_CH;
+}
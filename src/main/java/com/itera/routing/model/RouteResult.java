@@ -0,0 +1,22 @@
+package com.itera.routing.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One line of a batch response; {@code index} is the position of the request in the batch, {@code error} is set
+ * instead of {@code path} when the route could not be searched.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class RouteResult {
+
+    private int index;
+    private long from;
+    private long to;
+    private Algorithm algorithm;
+    private ShortestPath path;
+    private String error;
+}
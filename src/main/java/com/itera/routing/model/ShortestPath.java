@@ -31,6 +31,19 @@ public class ShortestPath {
         return sum;
     }
 
+    public ShortestPath join(ShortestPath tail) {
+        ShortestPath sum = new ShortestPath();
+        sum.setLength(this.getLength() + tail.getLength());
+
+        sum.setEdges(new ArrayList<>(edges));
+        sum.getEdges().addAll(tail.getEdges());
+
+        sum.setNodes(new ArrayList<>(nodes));
+        sum.getNodes().addAll(tail.getNodes().subList(1, tail.getNodes().size()));
+
+        return sum;
+    }
+
     public ShortestPath add(Edge edge) {
         ShortestPath sum = new ShortestPath();
         sum.setLength(this.getLength() + edge.getWeight());
@@ -0,0 +1,177 @@
+package com.itera.routing.services;
+
+import com.itera.routing.model.RouteRequest;
+import com.itera.routing.model.RouteResult;
+import com.itera.routing.utils.IntList;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Runs batches of route requests in the {@link ComputeLanes} lanes of their algorithms and endpoints. All
+ * batches share one permit per lane thread, so together they never keep more searches in a lane than it has
+ * threads, and never fill the queue that interactive requests wait in. A batch waits for a permit instead of
+ * failing; a search the lane still rejects because interactive requests filled it is retried shortly after.
+ * <p>
+ * Every lane of a batch is dispatched by its own virtual thread, so a busy lane, e.g. the small outlier
+ * lane, does not hold up the requests of the others. Lane threads only search and hand each result to a
+ * bounded queue; the calling thread passes the results on, so a slow consumer never holds a lane thread or
+ * a lane permit and only slows its own batch. Every lane thread borrows workspaces from its own free list,
+ * so after warm-up the batch searches without allocating them. Results are handed over in completion order.
+ */
+@Slf4j
+@Service
+public class BatchRoutingService {
+
+    private static final long RETRY_MILLIS = 50;
+
+    private final RoutingService routingService;
+    private final ComputeLanes computeLanes;
+    private final Map<ComputeLanes.Lane, Semaphore> permits = new EnumMap<>(ComputeLanes.Lane.class);
+
+    public BatchRoutingService(RoutingService routingService, ComputeLanes computeLanes) {
+        this.routingService = routingService;
+        this.computeLanes = computeLanes;
+        for (ComputeLanes.Lane lane : ComputeLanes.Lane.values()) {
+            permits.put(lane, new Semaphore(computeLanes.pool(lane).getThreads(), true));
+        }
+    }
+
+    /**
+     * Searches all requests; {@code results} is called on the calling thread only. An exception thrown by
+     * {@code results}, e.g. when the client has gone, stops the batch.
+     */
+    public void route(List<RouteRequest> requests, Consumer<RouteResult> results) {
+        long start = System.currentTimeMillis();
+        Map<ComputeLanes.Lane, IntList> byLane = new EnumMap<>(ComputeLanes.Lane.class);
+        List<RouteResult> rejected = new ArrayList<>();
+        for (int index = 0; index < requests.size(); index++) {
+            RouteRequest request = requests.get(index);
+            if (request.getAlgorithm() == null) {
+                rejected.add(error(index, request, "Missing algorithm"));
+                continue;
+            }
+            ComputeLanes.Lane lane = computeLanes.lane(request.getAlgorithm(), request.getFrom(), request.getTo());
+            byLane.computeIfAbsent(lane, l -> new IntList()).add(index);
+        }
+
+        // every lane may have all its searches and one more waiting for a permit unconsumed
+        int window = ComputeLanes.Lane.values().length;
+        for (ComputeLanes.Lane lane : ComputeLanes.Lane.values()) {
+            window += computeLanes.pool(lane).getThreads();
+        }
+        Semaphore unconsumed = new Semaphore(window);
+        BlockingQueue<RouteResult> finished = new ArrayBlockingQueue<>(window);
+
+        List<Thread> dispatchers = new ArrayList<>();
+        int expected = 0;
+        for (Map.Entry<ComputeLanes.Lane, IntList> entry : byLane.entrySet()) {
+            ComputeLanes.Lane lane = entry.getKey();
+            IntList indices = entry.getValue();
+            expected += indices.size();
+            dispatchers.add(
+                Thread.ofVirtual()
+                    .name("batch-" + lane.name().toLowerCase())
+                    .start(() -> dispatch(lane, indices, requests, unconsumed, finished))
+            );
+        }
+
+        try {
+            rejected.forEach(results);
+            for (int received = 0; received < expected; received++) {
+                RouteResult result = finished.take();
+                unconsumed.release();
+                results.accept(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch interrupted", e);
+        } finally {
+            dispatchers.forEach(Thread::interrupt);
+        }
+        log.info("Batch of {} routes in {} ms", requests.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Submits the requests of one lane in order, each once the batch has room for its result and the lane a
+     * free permit; stops when interrupted.
+     */
+    private void dispatch(
+        ComputeLanes.Lane lane,
+        IntList indices,
+        List<RouteRequest> requests,
+        Semaphore unconsumed,
+        BlockingQueue<RouteResult> finished
+    ) {
+        Semaphore lanePermits = permits.get(lane);
+        try {
+            for (int i = 0; i < indices.size(); i++) {
+                int index = indices.get(i);
+                RouteRequest request = requests.get(index);
+                unconsumed.acquire();
+                submit(lane, lanePermits, () -> {
+                    try {
+                        finished.add(search(index, request));
+                    } finally {
+                        lanePermits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            log.debug("Batch dispatch of lane {} stopped", lane);
+        }
+    }
+
+    private void submit(ComputeLanes.Lane lane, Semaphore lanePermits, Runnable task) throws InterruptedException {
+        while (true) {
+            lanePermits.acquire();
+            try {
+                computeLanes.pool(lane).execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                lanePermits.release();
+                Thread.sleep(RETRY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Runs on a lane thread; always returns a result, so every submitted search is consumed.
+     */
+    private RouteResult search(int index, RouteRequest request) {
+        try {
+            RouteResult result = result(index, request);
+            result.setPath(routingService.find(request.getAlgorithm(), request.getFrom(), request.getTo()));
+            return result;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return error(index, request, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Batch search {} failed", index, e);
+            return error(index, request, "Search failed");
+        }
+    }
+
+    private RouteResult error(int index, RouteRequest request, String message) {
+        RouteResult result = result(index, request);
+        result.setError(message);
+        return result;
+    }
+
+    private RouteResult result(int index, RouteRequest request) {
+        RouteResult result = new RouteResult();
+        result.setIndex(index);
+        result.setFrom(request.getFrom());
+        result.setTo(request.getTo());
+        result.setAlgorithm(request.getAlgorithm());
+        return result;
+    }
+}
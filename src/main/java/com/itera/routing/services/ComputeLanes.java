@@ -0,0 +1,87 @@
+package com.itera.routing.services;
+
+import com.itera.routing.model.Algorithm;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.DistanceUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bulkheads: every lane has its own {@link ComputePool}, so a burst in one lane only fills that lane's queue
+ * and never delays the searches of another one. Algorithms that query preprocessed data settle a few hundred
+ * nodes and run in the {@link Lane#QUERY} lane; plain graph searches run in {@link Lane#SEARCH}. A graph
+ * search whose endpoints are further apart than the outlier distance is expected to settle a large part of
+ * the graph and goes to {@link Lane#OUTLIER}, a small lane that caps how many cores such searches take at
+ * once. Distance matrices split their searches over the threads of {@link Lane#MATRIX}.
+ */
+@Slf4j
+public class ComputeLanes {
+
+    public enum Lane {
+        QUERY,
+        SEARCH,
+        OUTLIER,
+        MATRIX
+    }
+
+    private final CsrGraph graph;
+    private final double outlierDistance;
+    private final Map<Lane, ComputePool> pools = new EnumMap<>(Lane.class);
+
+    /**
+     * @param outlierDistance spherical distance between the endpoints from which on a graph search is an
+     *                        outlier; 0 never moves searches to the outlier lane
+     */
+    public ComputeLanes(CsrGraph graph, double outlierDistance, Map<Lane, ComputePool> pools) {
+        this.graph = graph;
+        this.outlierDistance = outlierDistance;
+        this.pools.putAll(pools);
+    }
+
+    public ComputePool pool(Lane lane) {
+        return pools.get(lane);
+    }
+
+    public static Lane lane(Algorithm algorithm) {
+        return switch (algorithm) {
+            case DIJKSTRA_CH, HL, TNR, CRP, ALT_CORE -> Lane.QUERY;
+            case DIJKSTRA_FWD, DIJKSTRA_BCKG, DIJKSTRA_BIDIR, REACH, REACH_ALT, ARCFLAGS, ASTAR, ASTAR_BIDIR, ALT,
+                 ALT_BIDIR -> Lane.SEARCH;
+        };
+    }
+
+    /**
+     * Lane of the algorithm, or the outlier lane for a graph search between distant endpoints. Unknown nodes
+     * keep the algorithm's lane, where the search rejects them.
+     */
+    public Lane lane(Algorithm algorithm, long fromId, long toId) {
+        Lane lane = lane(algorithm);
+        if (lane != Lane.SEARCH || outlierDistance <= 0) {
+            return lane;
+        }
+        int from = graph.indexOf(fromId);
+        int to = graph.indexOf(toId);
+        if (from < 0 || to < 0) {
+            return lane;
+        }
+        return DistanceUtils.getSphericalDistance(graph, from, to) >= outlierDistance ? Lane.OUTLIER : lane;
+    }
+
+    /**
+     * Runs a route search in its lane and waits for it.
+     */
+    public <T> T call(Algorithm algorithm, long fromId, long toId, Supplier<T> task) {
+        return call(lane(algorithm, fromId, toId), task);
+    }
+
+    public <T> T call(Lane lane, Supplier<T> task) {
+        return pools.get(lane).call(task);
+    }
+
+    public void shutdown() {
+        pools.values().forEach(ComputePool::shutdown);
+    }
+}
@@ -0,0 +1,82 @@
+package com.itera.routing.services;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fixed pool of platform threads for the CPU-bound searches of one {@link ComputeLanes} lane. Requests are
+ * handled on virtual threads, which only wait here, so the number of running searches stays at the pool size
+ * however many requests are open. The queue is bounded and a full queue rejects at once with a
+ * {@link RejectedExecutionException}, answered with 503, instead of letting latency grow.
+ */
+@Slf4j
+public class ComputePool {
+
+    @Getter
+    private final int threads;
+
+    private final ThreadPoolExecutor executor;
+
+    public ComputePool(String name, int threads, int queueSize) {
+        this.threads = threads;
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(
+            this.threads,
+            this.threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            factory,
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        log.info("Compute pool {}: {} threads, queue of {}", name, threads, queueSize);
+    }
+
+    /**
+     * Runs the task on the pool and waits for it; exceptions of the task are rethrown as they are.
+     */
+    public <T> T call(Supplier<T> task) {
+        Future<T> future = executor.submit(task::get);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a search", e);
+        }
+    }
+
+    /**
+     * Queues the task without waiting; throws {@link RejectedExecutionException} if the queue is full.
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
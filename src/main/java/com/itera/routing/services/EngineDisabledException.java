@@ -0,0 +1,11 @@
+package com.itera.routing.services;
+
+/**
+ * Thrown for a search whose engine is switched off in the configuration; answered with 501.
+ */
+public class EngineDisabledException extends IllegalStateException {
+
+    public EngineDisabledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,127 @@
+package com.itera.routing.services;
+
+import com.itera.routing.algos.ch.CCHTopology;
+import com.itera.routing.algos.ch.CHData;
+import com.itera.routing.algos.ch.CHEngine;
+import com.itera.routing.algos.crp.CRPEngine;
+import com.itera.routing.algos.crp.CRPMetric;
+import com.itera.routing.model.Customization;
+import com.itera.routing.model.MetricUpdate;
+import com.itera.routing.topology.CsrGraph;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Applies traffic and closure updates to the CCH metric and recustomizes the affected CRP cells when CRP is
+ * enabled. Both are customized before either is published, so a failed update leaves both engines and the
+ * stored weights as they were. Updates are serialized by a lock rather than a monitor, so waiting updates on
+ * virtual threads do not pin their carriers; queries keep running on the previous hierarchy and metric
+ * meanwhile.
+ */
+@Slf4j
+@Service
+public class MetricService {
+
+    private final CsrGraph graph;
+    private final CHEngine chEngine;
+    private final CCHTopology topology;
+    private final CRPEngine crpEngine;
+    private final Map<String, Integer> edgeIndices = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private double[] baseWeights;
+    private double[] weights;
+
+    public MetricService(
+        CsrGraph graph,
+        CHEngine chEngine,
+        ObjectProvider<CCHTopology> topology,
+        ObjectProvider<CRPEngine> crpEngine
+    ) {
+        this.graph = graph;
+        this.chEngine = chEngine;
+        this.topology = topology.getIfAvailable();
+        this.crpEngine = crpEngine.getIfAvailable();
+    }
+
+    public Customization update(MetricUpdate update) {
+        lock.lock();
+        try {
+            return apply(update);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Customization apply(MetricUpdate update) {
+
+        if (topology == null && crpEngine == null) {
+            throw new EngineDisabledException("Metric updates need routing.ch.mode=CCH or routing.crp.cell-size > 0");
+        }
+        if (baseWeights == null) {
+            baseWeights = new double[graph.getEdgeCount()];
+            for (int e = 0; e < graph.getEdgeCount(); e++) {
+                edgeIndices.put(graph.edgeId(e), e);
+                baseWeights[e] = graph.weight(e);
+            }
+            weights = baseWeights.clone();
+        }
+
+        double[] next = update.isReset() ? baseWeights.clone() : weights.clone();
+        update.getWeights().forEach((id, weight) -> {
+            if (weight == null || !(weight >= 0)) {
+                throw new IllegalArgumentException("Invalid weight of edge " + id + ": " + weight);
+            }
+            next[edgeIndex(id)] = weight;
+        });
+        for (String id : update.getClosed()) {
+            next[edgeIndex(id)] = Double.POSITIVE_INFINITY;
+        }
+
+        long start = System.currentTimeMillis();
+        Customization customization = new Customization();
+        CHEngine.Hierarchy hierarchy = null;
+        if (topology != null) {
+            CHData chData = topology.customize(next);
+            hierarchy = chEngine.prepare(chData);
+            customization.setShortcuts(chData.getShortcuts().getEdgeCount());
+        }
+        CRPMetric metric = null;
+        if (crpEngine != null) {
+            int[] updated = IntStream.range(0, next.length).filter(e -> next[e] != weights[e]).toArray();
+            metric = crpEngine.customize(next, updated);
+            customization.setCells(metric.getCustomizedCells());
+        }
+        if (hierarchy != null) {
+            chEngine.publish(hierarchy);
+        }
+        if (metric != null) {
+            crpEngine.publish(metric);
+        }
+        weights = next;
+
+        int changed = 0;
+        for (int e = 0; e < next.length; e++) {
+            if (next[e] != baseWeights[e]) {
+                changed++;
+            }
+        }
+        customization.setChangedEdges(changed);
+        customization.setMillis(System.currentTimeMillis() - start);
+        log.info("Metric updated: {} edges differ from the loaded weights", changed);
+        return customization;
+    }
+
+    private int edgeIndex(String id) {
+        Integer e = edgeIndices.get(id);
+        if (e == null) {
+            throw new IllegalArgumentException("Unknown edge: " + id);
+        }
+        return e;
+    }
+}
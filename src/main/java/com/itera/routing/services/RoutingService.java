@@ -1,173 +1,362 @@
 package com.itera.routing.services;
 
-import ch.qos.logback.classic.Logger;
+import com.itera.routing.algos.BidirectionalDijkstra;
+import com.itera.routing.algos.CsrDijkstra;
 import com.itera.routing.algos.alt.ALTData;
+import com.itera.routing.algos.arcflags.ArcFlags;
 import com.itera.routing.algos.alt.ALTHeuristics;
+import com.itera.routing.algos.alt.CoreALT;
+import com.itera.routing.algos.alt.CoreALTQuery;
 import com.itera.routing.algos.Dijkstra;
-import com.itera.routing.algos.ch.CHData;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.SearchWorkspacePool;
+import com.itera.routing.algos.ch.CHEngine;
+import com.itera.routing.algos.ch.CHManyToMany;
+import com.itera.routing.algos.ch.CHQuery;
+import com.itera.routing.algos.ch.ShortcutUnpacker;
+import com.itera.routing.algos.crp.CRPEngine;
+import com.itera.routing.algos.crp.CRPQuery;
+import com.itera.routing.algos.hl.HubLabels;
+import com.itera.routing.algos.isochrone.IsochroneSearch;
+import com.itera.routing.algos.reach.ReachBounds;
+import com.itera.routing.algos.tnr.TransitNodeRouting;
+import com.itera.routing.model.Algorithm;
+import com.itera.routing.model.DistanceMatrix;
+import com.itera.routing.model.Isochrone;
 import com.itera.routing.model.ShortestPath;
-import com.itera.routing.topology.Graph;
-import com.itera.routing.topology.Node;
+import com.itera.routing.topology.CsrGraph;
 import com.itera.routing.utils.DistanceUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RoutingService {
 
-    private final Graph graph;
+    private final CsrGraph graph;
     private final ALTData data;
-    private final CHData chData;
-
+    private final CHEngine chEngine;
+    private final ObjectProvider<HubLabels> hubLabels;
+    private final ObjectProvider<TransitNodeRouting> transitNodeRouting;
+    private final ObjectProvider<ArcFlags> arcFlags;
+    private final ObjectProvider<CoreALT> coreALT;
+    private final ObjectProvider<CRPEngine> crpEngine;
+    private final ObjectProvider<ReachBounds> reachBounds;
+    private final IsochroneSearch isochroneSearch;
+    private final ShortcutUnpacker shortcutUnpacker;
+
+    private final SearchWorkspacePool workspaces;
+
+    @Value("${routing.matrix.max-cells:1000000}")
+    private final long maxMatrixCells;
+
+    public ShortestPath find(Algorithm algorithm, long fromId, long toId) {
+        return switch (algorithm) {
+            case DIJKSTRA_FWD -> findByDijkstra(fromId, toId, Dijkstra.Direction.FORWARD);
+            case DIJKSTRA_BCKG -> findByDijkstra(fromId, toId, Dijkstra.Direction.BACKWARD);
+            case DIJKSTRA_BIDIR -> findByBidirectionalDijkstra(fromId, toId);
+            case DIJKSTRA_CH -> findByCHDijkstra(fromId, toId);
+            case HL -> findByHubLabels(fromId, toId);
+            case TNR -> findByTransitNodes(fromId, toId);
+            case REACH -> findByReach(fromId, toId);
+            case REACH_ALT -> findByReachAlt(fromId, toId);
+            case ARCFLAGS -> findByArcFlags(fromId, toId);
+            case CRP -> findByCrp(fromId, toId);
+            case ASTAR -> findByAstar(fromId, toId);
+            case ASTAR_BIDIR -> findByBidirectionalAstar(fromId, toId);
+            case ALT -> findByAlt(fromId, toId);
+            case ALT_BIDIR -> findByBidirectionalAlt(fromId, toId);
+            case ALT_CORE -> findByCoreAlt(fromId, toId);
+        };
+    }
 
     public ShortestPath findByDijkstra(long fromId, long toId, Dijkstra.Direction dir) {
-        Node from = graph.getNode(fromId);
-        Node to = graph.getNode(toId);
-
-        Dijkstra dijkstra;
-        switch (dir) {
-            case FORWARD:
-                dijkstra = new Dijkstra(Dijkstra.Direction.FORWARD, n -> 0.0);
-                return dijkstra.findShortestPath(from, to);
-            case BACKWARD:
-                dijkstra = new Dijkstra(Dijkstra.Direction.BACKWARD, n -> 0.0);
-                return dijkstra.findShortestPath(to, from);
-            default:
-                throw new IllegalArgumentException("Unsupported direction: " + dir);
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
+
+        try (SearchWorkspace workspace = workspaces.borrow()) {
+            CsrDijkstra dijkstra;
+            switch (dir) {
+                case FORWARD:
+                    dijkstra = search(workspace, null, Dijkstra.Direction.FORWARD, n -> 0.0);
+                    return dijkstra.findShortestPath(from, to);
+                case BACKWARD:
+                    dijkstra = search(workspace, null, Dijkstra.Direction.BACKWARD, n -> 0.0);
+                    return dijkstra.findShortestPath(to, from);
+                default:
+                    throw new IllegalArgumentException("Unsupported direction: " + dir);
+            }
         }
     }
 
     public ShortestPath findByBidirectionalDijkstra(long fromId, long toId) {
 
-        Node from = graph.getNode(fromId);
-        Node to = graph.getNode(toId);
-
-        Dijkstra dijkstraFwd = new Dijkstra(Dijkstra.Direction.FORWARD, n -> 0.0);
-        dijkstraFwd.initRouting(from);
-        Dijkstra dijkstraBckg = new Dijkstra(Dijkstra.Direction.BACKWARD, n -> 0.0);
-        dijkstraBckg.initRouting(to);
-
-        double min = Double.MAX_VALUE;
-        Node join = null;
-        boolean hasFound = false;
-        while (!hasFound) {
-            dijkstraFwd.doStep(to);
-            dijkstraBckg.doStep(from);
-
-            Set<Node> visitedByFwd = dijkstraFwd.getVisited();
-            Set<Node> visitedByBckg = dijkstraBckg.getVisited();
-            Set<Node> overlap = visitedByFwd.stream()
-                .filter(visitedByBckg::contains)
-                .collect(Collectors.toSet());
-
-            if (overlap.size() < 100) {
-                continue;
-            }
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
+
+        try (SearchWorkspace fwd = workspaces.borrow(); SearchWorkspace bckg = workspaces.borrow()) {
+            return new BidirectionalDijkstra(graph, fwd, bckg).findShortestPath(from, to);
+        }
+    }
 
-            for (Node node : overlap) {
-                double d1 = dijkstraFwd.getDistances().get(node);
-                double d2 = dijkstraBckg.getDistances().get(node);
-                double d = d1 + d2;
-                if (d < min) {
-                    min = d;
-                    join = node;
-                    hasFound = true;
+    public ShortestPath findByCHDijkstra(long fromId, long toId) {
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
+
+        try (SearchWorkspace fwd = workspaces.borrow(); SearchWorkspace bckg = workspaces.borrow()) {
+            CHEngine.Hierarchy ch = chEngine.current();
+            return new CHQuery(ch.queryGraph(), ch.unpacker(), fwd, bckg).findShortestPath(from, to);
+        }
+    }
+
+    /**
+     * Many-to-many CH bucket search on the current hierarchy, including metric updates. The searches run on
+     * the threads of the given pool while the calling thread waits.
+     */
+    public DistanceMatrix findMatrix(List<Long> sourceIds, List<Long> targetIds, ComputePool pool) {
+        if ((long) sourceIds.size() * targetIds.size() > maxMatrixCells) {
+            throw new IllegalArgumentException(
+                "Matrix of " + sourceIds.size() + "x" + targetIds.size() + " exceeds routing.matrix.max-cells="
+                    + maxMatrixCells
+            );
+        }
+        int[] sources = sourceIds.stream().mapToInt(id -> nodeIndex(graph, id)).toArray();
+        int[] targets = targetIds.stream().mapToInt(id -> nodeIndex(graph, id)).toArray();
+
+        long start = System.currentTimeMillis();
+        double[][] distances = new CHManyToMany(chEngine.current().queryGraph())
+            .distances(sources, targets, workspaces, pool::execute, pool.getThreads());
+        for (double[] row : distances) {
+            for (int t = 0; t < row.length; t++) {
+                if (row[t] == Double.POSITIVE_INFINITY) {
+                    row[t] = Double.MAX_VALUE;
                 }
             }
         }
+        log.info("{}x{} matrix in {} ms", sources.length, targets.length, System.currentTimeMillis() - start);
 
-        ShortestPath shortestPathFwd = dijkstraFwd.findShortestPath(from, join);
-        ShortestPath shortestPathBckg = dijkstraBckg.findShortestPath(to, join);
+        DistanceMatrix matrix = new DistanceMatrix();
+        matrix.setSources(sourceIds);
+        matrix.setTargets(targetIds);
+        matrix.setDistances(distances);
+        return matrix;
+    }
 
-        log.info("Joined visited: {}", dijkstraFwd.getVisited().size() + dijkstraBckg.getVisited().size());
-        return shortestPathFwd.add(shortestPathBckg);
+    /**
+     * Isochrones for all budgets from one search on the current metric; large budgets sweep the current
+     * hierarchy with PHAST.
+     */
+    public List<Isochrone> findIsochrones(long fromId, double[] budgets) {
+        int from = nodeIndex(graph, fromId);
+        for (double budget : budgets) {
+            if (!(budget >= 0)) {
+                throw new IllegalArgumentException("Invalid budget: " + budget);
+            }
+        }
+
+        try (SearchWorkspace workspace = workspaces.borrow()) {
+            return isochroneSearch.find(from, budgets, chEngine.current().queryGraph(), workspace);
+        }
     }
 
-    public ShortestPath findByCHDijkstra(long fromId, long toId) {
+    /**
+     * Hub label query; labels are derived from the CH loaded at startup and do not follow CCH metric updates.
+     */
+    public ShortestPath findByHubLabels(long fromId, long toId) {
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
 
-        Graph chGraph = chData.getGraph();
-        Node from = chGraph.getNode(fromId);
-        Node to = chGraph.getNode(toId);
-
-        Dijkstra dijkstraFwd = new Dijkstra(Dijkstra.Direction.FORWARD, n -> 0.0);
-        dijkstraFwd.initRouting(from);
-        dijkstraFwd.setNodeRestriction((node, neightbor) -> chData.getHierarchies().get(node) >= chData.getHierarchies().get(neightbor));
-
-        Dijkstra dijkstraBckg = new Dijkstra(Dijkstra.Direction.BACKWARD, n -> 0.0);
-        dijkstraBckg.initRouting(to);
-        dijkstraBckg.setNodeRestriction((node, neightbor) -> chData.getHierarchies().get(node) >= chData.getHierarchies().get(neightbor));
-
-        double min = Double.MAX_VALUE;
-        Node join = null;
-        boolean isOkToStop = false;
-        while (!isOkToStop) {
-            dijkstraFwd.doStep(to);
-            dijkstraBckg.doStep(from);
-
-            Set<Node> visitedByFwd = dijkstraFwd.getVisited();
-            Set<Node> visitedByBckg = dijkstraBckg.getVisited();
-            Set<Node> overlap = visitedByFwd.stream()
-                .filter(visitedByBckg::contains)
-                .collect(Collectors.toSet());
-
-            if (overlap.isEmpty()) {
-                continue;
-            }
+        HubLabels labels = hubLabels.getIfAvailable();
+        if (labels == null) {
+            throw new EngineDisabledException("Hub labels need routing.hl.enabled=true");
+        }
+        return labels.findShortestPath(from, to, shortcutUnpacker);
+    }
 
-            for (Node node : overlap) {
-                double d1 = dijkstraFwd.getDistances().get(node);
-                double d2 = dijkstraBckg.getDistances().get(node);
-                double d = d1 + d2;
-                if (d < min) {
-                    min = d;
-                    join = node;
-                }
+    /**
+     * Transit node routing over the CH loaded at startup; local queries fall back to its CH query.
+     */
+    public ShortestPath findByTransitNodes(long fromId, long toId) {
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
 
-                double fwdMinKey = dijkstraFwd.getCandidateMinKey();
-                double bckgMinKey = dijkstraBckg.getCandidateMinKey();
+        TransitNodeRouting tnr = transitNodeRouting.getIfAvailable();
+        if (tnr == null) {
+            throw new EngineDisabledException("Transit node routing needs routing.tnr.transit-nodes > 0");
+        }
+        try (SearchWorkspace fwd = workspaces.borrow();
+             SearchWorkspace bckg = workspaces.borrow();
+             SearchWorkspace local = workspaces.borrow()) {
+            CHQuery query = new CHQuery(tnr.getGraph(), shortcutUnpacker, fwd, bckg);
+            return tnr.findShortestPath(from, to, query, local, shortcutUnpacker);
+        }
+    }
 
-                if(fwdMinKey>=min ||  bckgMinKey >= min){
-                    isOkToStop = true;
-                }
-            }
+    /**
+     * Upward CH search into the core, then bidirectional ALT inside it; uses the CH loaded at startup.
+     */
+    public ShortestPath findByCoreAlt(long fromId, long toId) {
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
+
+        CoreALT core = coreALT.getIfAvailable();
+        if (core == null) {
+            throw new EngineDisabledException("Core-ALT needs routing.core-alt.core-fraction > 0");
+        }
+        try (SearchWorkspace fwd = workspaces.borrow(); SearchWorkspace bckg = workspaces.borrow()) {
+            return new CoreALTQuery(core, shortcutUnpacker, fwd, bckg).findShortestPath(from, to);
         }
+    }
+
+    /**
+     * Bidirectional search over the CRP overlay with the current metric, including metric updates.
+     */
+    public ShortestPath findByCrp(long fromId, long toId) {
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
+
+        CRPEngine crp = crpEngine.getIfAvailable();
+        if (crp == null) {
+            throw new EngineDisabledException("CRP needs routing.crp.cell-size > 0");
+        }
+        try (SearchWorkspace fwd = workspaces.borrow(); SearchWorkspace bckg = workspaces.borrow()) {
+            return new CRPQuery(crp.getOverlay(), crp.current(), fwd, bckg).findShortestPath(from, to);
+        }
+    }
 
-        ShortestPath shortestPathFwd = dijkstraFwd.findShortestPath(from, join);
-        ShortestPath shortestPathBckg = dijkstraBckg.findShortestPath(to, join);
+    /**
+     * A* with reach pruning; the spherical distance is both the heuristic and the target bound of the pruning.
+     */
+    public ShortestPath findByReach(long fromId, long toId) {
+        int to = nodeIndex(graph, toId);
+        return findByReach(fromId, to, n -> DistanceUtils.getSphericalDistance(graph, n, to));
+    }
 
-        log.info("Joined visited: {}", dijkstraFwd.getVisited().size() + dijkstraBckg.getVisited().size());
-        return shortestPathFwd.add(shortestPathBckg);
+    /**
+     * Like {@link #findByReach(long, long)} with the ALT landmark bounds.
+     */
+    public ShortestPath findByReachAlt(long fromId, long toId) {
+        int to = nodeIndex(graph, toId);
+        return findByReach(fromId, to, new ALTHeuristics(to, data)::heuristics);
     }
 
+    private ShortestPath findByReach(long fromId, int to, IntToDoubleFunction lowerBound) {
+        int from = nodeIndex(graph, fromId);
 
-    public ShortestPath findByAstar(long fromId, long toId) {
-        Node from = graph.getNode(fromId);
-        Node to = graph.getNode(toId);
+        ReachBounds reach = reachBounds.getIfAvailable();
+        if (reach == null) {
+            throw new EngineDisabledException("Reach pruning needs routing.reach.limit > 0");
+        }
+        try (SearchWorkspace workspace = workspaces.borrow()) {
+            return reach.findShortestPath(from, to, lowerBound, workspace);
+        }
+    }
+
+    public ShortestPath findByArcFlags(long fromId, long toId) {
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
+
+        ArcFlags flags = arcFlags.getIfAvailable();
+        if (flags == null) {
+            throw new EngineDisabledException("Arc flags need routing.arcflags.cells > 0");
+        }
+        try (SearchWorkspace workspace = workspaces.borrow()) {
+            return flags.findShortestPath(from, to, workspace);
+        }
+    }
 
-        Dijkstra dijkstra = new Dijkstra(
-            Dijkstra.Direction.FORWARD,
-            n -> DistanceUtils.getSphericalDistance(n, to)
-        );
-        return dijkstra.findShortestPath(from, to);
+    public ShortestPath findByAstar(long fromId, long toId) {
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
+
+        try (SearchWorkspace workspace = workspaces.borrow()) {
+            CsrDijkstra dijkstra = search(
+                workspace,
+                null,
+                Dijkstra.Direction.FORWARD,
+                n -> DistanceUtils.getSphericalDistance(graph, n, to)
+            );
+            return dijkstra.findShortestPath(from, to);
+        }
     }
 
     public ShortestPath findByAlt(long fromId, long toId) {
-        Node from = graph.getNode(fromId);
-        Node to = graph.getNode(toId);
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
         ALTHeuristics heuristics = new ALTHeuristics(to, data);
 
-        Dijkstra dijkstra = new Dijkstra(
-            Dijkstra.Direction.FORWARD,
-            n -> heuristics.heuristics(n)
-        );
-        return dijkstra.findShortestPath(from, to);
+        try (SearchWorkspace workspace = workspaces.borrow()) {
+            CsrDijkstra dijkstra = search(
+                workspace,
+                null,
+                Dijkstra.Direction.FORWARD,
+                heuristics::heuristics
+            );
+            return dijkstra.findShortestPath(from, to);
+        }
+    }
+
+    /**
+     * Bidirectional A* with the average potential (π_t - π_s) / 2 of the spherical bounds to the target and
+     * from the source.
+     */
+    public ShortestPath findByBidirectionalAstar(long fromId, long toId) {
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
+
+        try (SearchWorkspace fwd = workspaces.borrow(); SearchWorkspace bckg = workspaces.borrow()) {
+            BidirectionalDijkstra dijkstra = new BidirectionalDijkstra(
+                graph,
+                n -> (DistanceUtils.getSphericalDistance(graph, n, to) - DistanceUtils.getSphericalDistance(graph, from, n)) / 2,
+                fwd,
+                bckg
+            );
+            return dijkstra.findShortestPath(from, to);
+        }
+    }
+
+    /**
+     * Bidirectional ALT with the average potential of the landmark bounds to the target and from the source.
+     */
+    public ShortestPath findByBidirectionalAlt(long fromId, long toId) {
+        int from = nodeIndex(graph, fromId);
+        int to = nodeIndex(graph, toId);
+        ALTHeuristics toTarget = new ALTHeuristics(to, data, Dijkstra.Direction.FORWARD);
+        ALTHeuristics fromSource = new ALTHeuristics(from, data, Dijkstra.Direction.BACKWARD);
+
+        try (SearchWorkspace fwd = workspaces.borrow(); SearchWorkspace bckg = workspaces.borrow()) {
+            BidirectionalDijkstra dijkstra = new BidirectionalDijkstra(
+                graph,
+                n -> (toTarget.heuristics(n) - fromSource.heuristics(n)) / 2,
+                fwd,
+                bckg
+            );
+            return dijkstra.findShortestPath(from, to);
+        }
+    }
+
+    private CsrDijkstra search(
+        SearchWorkspace workspace,
+        CsrGraph overlay,
+        Dijkstra.Direction direction,
+        IntToDoubleFunction h
+    ) {
+        return new CsrDijkstra(graph, overlay, direction, h, workspace);
+    }
+
+    private int nodeIndex(CsrGraph graph, long nodeId) {
+        int idx = graph.indexOf(nodeId);
+        if (idx < 0) {
+            throw new IllegalArgumentException("Unknown node: " + nodeId);
+        }
+        return idx;
     }
 
 }
@@ -0,0 +1,445 @@
+package com.itera.routing.topology;
+
+import com.itera.routing.utils.SnapshotReader;
+import com.itera.routing.utils.SnapshotWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable compressed-sparse-row graph. Nodes are addressed by dense indices (position in the sorted
+ * {@code nodeIds} column), edges by their position in the forward adjacency arrays. Columns are either heap
+ * arrays or regions of a memory-mapped snapshot.
+ */
+@Slf4j
+public class CsrGraph {
+
+    private final LongBuffer nodeIds;
+    private final DoubleBuffer lons;
+    private final DoubleBuffer lats;
+
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+    private final DoubleBuffer outWeights;
+    private final IntBuffer edgeIdOffsets;
+    private final ByteBuffer edgeIdBytes;
+
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+    private final DoubleBuffer inWeights;
+    private final IntBuffer inEdges;
+
+    private CsrGraph(
+        LongBuffer nodeIds,
+        DoubleBuffer lons,
+        DoubleBuffer lats,
+        IntBuffer outOffsets,
+        IntBuffer outTargets,
+        DoubleBuffer outWeights,
+        IntBuffer edgeIdOffsets,
+        ByteBuffer edgeIdBytes,
+        IntBuffer inOffsets,
+        IntBuffer inSources,
+        DoubleBuffer inWeights,
+        IntBuffer inEdges
+    ) {
+        this.nodeIds = nodeIds;
+        this.lons = lons;
+        this.lats = lats;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outWeights = outWeights;
+        this.edgeIdOffsets = edgeIdOffsets;
+        this.edgeIdBytes = edgeIdBytes;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inWeights = inWeights;
+        this.inEdges = inEdges;
+    }
+
+    public static CsrGraph of(Graph graph) {
+
+        int n = graph.getNodes().size();
+        long[] nodeIds = new long[n];
+        double[] lons = new double[n];
+        double[] lats = new double[n];
+        int i = 0;
+        for (Node node : graph.getNodes().values()) {
+            nodeIds[i] = node.getId();
+            lons[i] = node.getLon();
+            lats[i] = node.getLat();
+            i++;
+        }
+
+        int m = graph.getEdges().size();
+        long[] from = new long[m];
+        long[] to = new long[m];
+        double[] weights = new double[m];
+        String[] ids = new String[m];
+        int j = 0;
+        for (Edge edge : graph.getEdges().values()) {
+            from[j] = edge.getFrom() != null ? edge.getFrom().getId() : -1;
+            to[j] = edge.getTo() != null ? edge.getTo().getId() : -1;
+            weights[j] = edge.getWeight();
+            ids[j] = edge.getId();
+            j++;
+        }
+
+        return build(nodeIds, lons, lats, from, to, weights, ids);
+    }
+
+    /**
+     * Builds the graph from plain node and edge columns. Nodes may come in any order, edges referencing
+     * unknown nodes are dropped.
+     */
+    public static CsrGraph build(
+        long[] nodeIds,
+        double[] lons,
+        double[] lats,
+        long[] edgeFrom,
+        long[] edgeTo,
+        double[] weights,
+        String[] ids
+    ) {
+        return nodes(nodeIds, lons, lats).withEdges(edgeFrom, edgeTo, weights, ids);
+    }
+
+    /**
+     * Same as {@link #build(long[], double[], double[], long[], long[], double[], String[])} with edge ids
+     * given as UTF-8 bytes, id of edge {@code e} being {@code idBytes[idOffsets[e]..idOffsets[e + 1])}.
+     */
+    public static CsrGraph build(
+        long[] nodeIds,
+        double[] lons,
+        double[] lats,
+        long[] edgeFrom,
+        long[] edgeTo,
+        double[] weights,
+        byte[] idBytes,
+        int[] idOffsets
+    ) {
+        return nodes(nodeIds, lons, lats).withEdges(edgeFrom, edgeTo, weights, idBytes, idOffsets);
+    }
+
+    private static CsrGraph nodes(long[] nodeIds, double[] lons, double[] lats) {
+
+        long[] sortedIds = nodeIds.clone();
+        Arrays.parallelSort(sortedIds);
+        int n = sortedIds.length;
+        double[] sortedLons = new double[n];
+        double[] sortedLats = new double[n];
+        IntStream.range(0, nodeIds.length).parallel().forEach(i -> {
+            int idx = Arrays.binarySearch(sortedIds, nodeIds[i]);
+            sortedLons[idx] = lons[i];
+            sortedLats[idx] = lats[i];
+        });
+
+        return new CsrGraph(
+            LongBuffer.wrap(sortedIds),
+            DoubleBuffer.wrap(sortedLons),
+            DoubleBuffer.wrap(sortedLats),
+            null, null, null, null, null, null, null, null, null
+        );
+    }
+
+    /**
+     * Builds a graph sharing the node columns of this one with a different set of edges.
+     */
+    public CsrGraph withEdges(long[] edgeFrom, long[] edgeTo, double[] weights, String[] ids) {
+
+        int[] idOffsets = new int[ids.length + 1];
+        byte[][] encoded = new byte[ids.length][];
+        for (int e = 0; e < ids.length; e++) {
+            encoded[e] = ids[e].getBytes(StandardCharsets.UTF_8);
+            idOffsets[e + 1] = idOffsets[e] + encoded[e].length;
+        }
+        byte[] idBytes = new byte[idOffsets[ids.length]];
+        for (int e = 0; e < ids.length; e++) {
+            System.arraycopy(encoded[e], 0, idBytes, idOffsets[e], encoded[e].length);
+        }
+
+        return withEdges(edgeFrom, edgeTo, weights, idBytes, idOffsets);
+    }
+
+    public CsrGraph withEdges(long[] edgeFrom, long[] edgeTo, double[] weights, byte[] idBytes, int[] idOffsets) {
+
+        int n = getNodeCount();
+        int m = edgeFrom.length;
+        int[] from = new int[m];
+        int[] to = new int[m];
+        IntStream.range(0, m).parallel().forEach(e -> {
+            from[e] = indexOf(edgeFrom[e]);
+            to[e] = indexOf(edgeTo[e]);
+        });
+
+        int[] outOffsets = new int[n + 1];
+        int[] inOffsets = new int[n + 1];
+        int valid = 0;
+        for (int e = 0; e < m; e++) {
+            if (from[e] < 0 || to[e] < 0) {
+                continue;
+            }
+            outOffsets[from[e] + 1]++;
+            inOffsets[to[e] + 1]++;
+            valid++;
+        }
+        if (valid < m) {
+            log.warn("{} edges reference unknown nodes and are skipped", m - valid);
+        }
+
+        for (int v = 0; v < n; v++) {
+            outOffsets[v + 1] += outOffsets[v];
+            inOffsets[v + 1] += inOffsets[v];
+        }
+
+        int[] outTargets = new int[valid];
+        double[] outWeights = new double[valid];
+        int[] positions = new int[m];
+        int[] inSources = new int[valid];
+        double[] inWeights = new double[valid];
+        int[] inEdges = new int[valid];
+
+        int[] outFill = Arrays.copyOf(outOffsets, n);
+        int[] inFill = Arrays.copyOf(inOffsets, n);
+        for (int e = 0; e < m; e++) {
+            if (from[e] < 0 || to[e] < 0) {
+                positions[e] = -1;
+                continue;
+            }
+            int pos = outFill[from[e]]++;
+            positions[e] = pos;
+            outTargets[pos] = to[e];
+            outWeights[pos] = weights[e];
+
+            int inPos = inFill[to[e]]++;
+            inSources[inPos] = from[e];
+            inWeights[inPos] = weights[e];
+            inEdges[inPos] = pos;
+        }
+
+        int[] edgeIdOffsets = new int[valid + 1];
+        for (int e = 0; e < m; e++) {
+            if (positions[e] >= 0) {
+                edgeIdOffsets[positions[e] + 1] = idOffsets[e + 1] - idOffsets[e];
+            }
+        }
+        for (int e = 0; e < valid; e++) {
+            edgeIdOffsets[e + 1] += edgeIdOffsets[e];
+        }
+        byte[] edgeIdBytes = new byte[edgeIdOffsets[valid]];
+        IntStream.range(0, m).parallel().forEach(e -> {
+            if (positions[e] >= 0) {
+                int length = idOffsets[e + 1] - idOffsets[e];
+                System.arraycopy(idBytes, idOffsets[e], edgeIdBytes, edgeIdOffsets[positions[e]], length);
+            }
+        });
+
+        log.info("CSR graph: {} nodes, {} edges", n, valid);
+        return new CsrGraph(
+            nodeIds,
+            lons,
+            lats,
+            IntBuffer.wrap(outOffsets),
+            IntBuffer.wrap(outTargets),
+            DoubleBuffer.wrap(outWeights),
+            IntBuffer.wrap(edgeIdOffsets),
+            ByteBuffer.wrap(edgeIdBytes),
+            IntBuffer.wrap(inOffsets),
+            IntBuffer.wrap(inSources),
+            DoubleBuffer.wrap(inWeights),
+            IntBuffer.wrap(inEdges)
+        );
+    }
+
+    /**
+     * Builds a graph sharing all columns of this one except the edge weights, given by forward edge index.
+     */
+    public CsrGraph withWeights(double[] weights) {
+
+        double[] reverseWeights = new double[getEdgeCount()];
+        IntStream.range(0, reverseWeights.length).parallel().forEach(i -> reverseWeights[i] = weights[inEdges.get(i)]);
+
+        return new CsrGraph(
+            nodeIds,
+            lons,
+            lats,
+            outOffsets,
+            outTargets,
+            DoubleBuffer.wrap(weights),
+            edgeIdOffsets,
+            edgeIdBytes,
+            inOffsets,
+            inSources,
+            DoubleBuffer.wrap(reverseWeights),
+            inEdges
+        );
+    }
+
+    public static CsrGraph read(SnapshotReader in) throws IOException {
+        int n = in.readInt();
+        CsrGraph nodes = new CsrGraph(
+            in.mapLongs(n),
+            in.mapDoubles(n),
+            in.mapDoubles(n),
+            null, null, null, null, null, null, null, null, null
+        );
+        return nodes.readEdges(in);
+    }
+
+    /**
+     * Maps an edge section written by {@link #writeEdges(SnapshotWriter)} on top of the node columns of this
+     * graph.
+     */
+    public CsrGraph readEdges(SnapshotReader in) throws IOException {
+        int n = getNodeCount();
+        int m = in.readInt();
+        int idBytes = in.readInt();
+        return new CsrGraph(
+            nodeIds,
+            lons,
+            lats,
+            in.mapInts(n + 1),
+            in.mapInts(m),
+            in.mapDoubles(m),
+            in.mapInts(m + 1),
+            in.mapBytes(idBytes),
+            in.mapInts(n + 1),
+            in.mapInts(m),
+            in.mapDoubles(m),
+            in.mapInts(m)
+        );
+    }
+
+    public void write(SnapshotWriter out) throws IOException {
+        out.writeInt(getNodeCount());
+        out.writeLongs(nodeIds);
+        out.writeDoubles(lons);
+        out.writeDoubles(lats);
+        writeEdges(out);
+    }
+
+    public void writeEdges(SnapshotWriter out) throws IOException {
+        out.writeInt(getEdgeCount());
+        out.writeInt(edgeIdBytes.limit());
+        out.writeInts(outOffsets);
+        out.writeInts(outTargets);
+        out.writeDoubles(outWeights);
+        out.writeInts(edgeIdOffsets);
+        out.writeBytes(edgeIdBytes);
+        out.writeInts(inOffsets);
+        out.writeInts(inSources);
+        out.writeDoubles(inWeights);
+        out.writeInts(inEdges);
+    }
+
+    public int getNodeCount() {
+        return nodeIds.limit();
+    }
+
+    public int getEdgeCount() {
+        return outTargets.limit();
+    }
+
+    /**
+     * @return dense index of the node or -1 when the node does not exist
+     */
+    public int indexOf(long nodeId) {
+        int lo = 0;
+        int hi = nodeIds.limit() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long id = nodeIds.get(mid);
+            if (id < nodeId) {
+                lo = mid + 1;
+            } else if (id > nodeId) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public long nodeId(int node) {
+        return nodeIds.get(node);
+    }
+
+    public double lon(int node) {
+        return lons.get(node);
+    }
+
+    public double lat(int node) {
+        return lats.get(node);
+    }
+
+    public int outBegin(int node) {
+        return outOffsets.get(node);
+    }
+
+    public int outEnd(int node) {
+        return outOffsets.get(node + 1);
+    }
+
+    public int target(int edge) {
+        return outTargets.get(edge);
+    }
+
+    public double weight(int edge) {
+        return outWeights.get(edge);
+    }
+
+    public String edgeId(int edge) {
+        int begin = edgeIdOffsets.get(edge);
+        byte[] bytes = new byte[edgeIdOffsets.get(edge + 1) - begin];
+        edgeIdBytes.get(begin, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tail node of a forward edge, found by binary search over the offsets.
+     */
+    public int source(int edge) {
+        int lo = 0;
+        int hi = getNodeCount() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (outOffsets.get(mid) <= edge) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    public int inBegin(int node) {
+        return inOffsets.get(node);
+    }
+
+    public int inEnd(int node) {
+        return inOffsets.get(node + 1);
+    }
+
+    public int inSource(int inPos) {
+        return inSources.get(inPos);
+    }
+
+    public double inWeight(int inPos) {
+        return inWeights.get(inPos);
+    }
+
+    /**
+     * @return forward edge index of the reverse adjacency entry
+     */
+    public int inEdge(int inPos) {
+        return inEdges.get(inPos);
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.itera.routing.utils;
 
+import com.itera.routing.topology.CsrGraph;
 import com.itera.routing.topology.Node;
 
 public class DistanceUtils {
@@ -7,11 +8,19 @@ public class DistanceUtils {
     public static final long EARTH_R = 6371 * 1000;
 
     public static double getSphericalDistance(Node n1, Node n2) {
+        return getSphericalDistance(n1.getLon(), n1.getLat(), n2.getLon(), n2.getLat());
+    }
 
-        double lat1 = n1.getLat() / 180 * Math.PI;
-        double lat2 = n2.getLat() / 180 * Math.PI;
+    public static double getSphericalDistance(CsrGraph graph, int n1, int n2) {
+        return getSphericalDistance(graph.lon(n1), graph.lat(n1), graph.lon(n2), graph.lat(n2));
+    }
 
-        double dlng = (n1.getLon() - n2.getLon()) / 180 * Math.PI;
+    public static double getSphericalDistance(double lon1, double lat1, double lon2, double lat2) {
+
+        lat1 = lat1 / 180 * Math.PI;
+        lat2 = lat2 / 180 * Math.PI;
+
+        double dlng = (lon1 - lon2) / 180 * Math.PI;
 
         if (!(lat1 == lat2 && dlng == 0)) {
             double distance = Math.acos(Math.sin(lat1) * Math.sin(lat2) + Math.cos(lat1) * Math.cos(lat2) * Math.cos(dlng)) * EARTH_R;
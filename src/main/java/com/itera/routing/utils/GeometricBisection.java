@@ -0,0 +1,69 @@
+package com.itera.routing.utils;
+
+import com.itera.routing.topology.CsrGraph;
+
+/**
+ * Coordinate split shared by the geometric partitions: arc flag cells, CRP cells and the nested dissection
+ * of the CCH order.
+ */
+public class GeometricBisection {
+
+    private GeometricBisection() {
+    }
+
+    /**
+     * Reorders the nodes so that the first {@code k} have no larger coordinate along the longer extent of
+     * their bounding box than the rest; longitude extents are scaled to the middle latitude.
+     */
+    public static void split(CsrGraph graph, int[] nodes, int k) {
+        double minLon = Double.POSITIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        for (int v : nodes) {
+            minLon = Math.min(minLon, graph.lon(v));
+            maxLon = Math.max(maxLon, graph.lon(v));
+            minLat = Math.min(minLat, graph.lat(v));
+            maxLat = Math.max(maxLat, graph.lat(v));
+        }
+        double lonExtent = (maxLon - minLon) * Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        select(graph, nodes, k, lonExtent > maxLat - minLat);
+    }
+
+    /**
+     * Moves the node with the k-th smallest coordinate to position k, smaller ones before it.
+     */
+    private static void select(CsrGraph graph, int[] nodes, int k, boolean byLon) {
+        int lo = 0;
+        int hi = nodes.length - 1;
+        while (lo < hi) {
+            double pivot = coordinate(graph, nodes[(lo + hi) >>> 1], byLon);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate(graph, nodes[i], byLon) < pivot) {
+                    i++;
+                }
+                while (coordinate(graph, nodes[j], byLon) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = nodes[i];
+                    nodes[i++] = nodes[j];
+                    nodes[j--] = tmp;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double coordinate(CsrGraph graph, int v, boolean byLon) {
+        return byLon ? graph.lon(v) : graph.lat(v);
+    }
+}
@@ -0,0 +1,115 @@
+package com.itera.routing.utils;
+
+import java.util.Arrays;
+
+/**
+ * Implicit 4-ary min heap with a node → heap position index for O(log n) decrease-key. Keys are stored
+ * next to the heap slots, so sifting never leaves the two primitive arrays.
+ */
+public class IndexedDaryHeap implements IndexedPriorityQueue {
+
+    private static final int ARITY = 4;
+
+    private final int[] heap;
+    private final double[] keys;
+    private final int[] positions;
+    private int size;
+
+    public IndexedDaryHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.keys = new double[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int node) {
+        return positions[node] >= 0;
+    }
+
+    @Override
+    public void update(int node, double key) {
+        int position = positions[node];
+        if (position < 0) {
+            siftUp(size++, node, key);
+        } else if (key < keys[position]) {
+            siftUp(position, node, key);
+        }
+    }
+
+    @Override
+    public double getMinKey() {
+        return size == 0 ? Double.POSITIVE_INFINITY : keys[0];
+    }
+
+    @Override
+    public int extractMin() {
+        if (size == 0) {
+            return -1;
+        }
+        int min = heap[0];
+        positions[min] = -1;
+        if (--size > 0) {
+            siftDown(0, heap[size], keys[size]);
+        }
+        return min;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position, int node, double key) {
+        while (position > 0) {
+            int parent = (position - 1) / ARITY;
+            if (keys[parent] <= key) {
+                break;
+            }
+            place(position, heap[parent], keys[parent]);
+            position = parent;
+        }
+        place(position, node, key);
+    }
+
+    private void siftDown(int position, int node, double key) {
+        while (true) {
+            int first = position * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + ARITY, size);
+            int child = first;
+            for (int c = first + 1; c < last; c++) {
+                if (keys[c] < keys[child]) {
+                    child = c;
+                }
+            }
+            if (keys[child] >= key) {
+                break;
+            }
+            place(position, heap[child], keys[child]);
+            position = child;
+        }
+        place(position, node, key);
+    }
+
+    private void place(int position, int node, double key) {
+        heap[position] = node;
+        keys[position] = key;
+        positions[node] = position;
+    }
+}
@@ -0,0 +1,66 @@
+package com.itera.routing.utils;
+
+import java.util.Arrays;
+
+/**
+ * {@link IndexedPriorityQueue} on top of {@link FibonacciHeap}, keeping the heap node of every queued index so
+ * that updates use the heap's decrease-key.
+ */
+public class IndexedFibonacciHeap implements IndexedPriorityQueue {
+
+    private final FibonacciHeap<Double, Integer> heap = new FibonacciHeap<>();
+    private final Object[] handles;
+
+    public IndexedFibonacciHeap(int capacity) {
+        this.handles = new Object[capacity];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public boolean contains(int node) {
+        return handles[node] != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void update(int node, double key) {
+        FibonacciHeap<Double, Integer>.Node handle = (FibonacciHeap<Double, Integer>.Node) handles[node];
+        if (handle == null) {
+            handles[node] = heap.add(key, node);
+        } else if (key < handle.getKey()) {
+            heap.decreaseKey(handle, key);
+        }
+    }
+
+    @Override
+    public double getMinKey() {
+        return heap.isEmpty() ? Double.POSITIVE_INFINITY : heap.getMinKey();
+    }
+
+    @Override
+    public int extractMin() {
+        Integer node = heap.extractMin();
+        if (node == null) {
+            return -1;
+        }
+        handles[node] = null;
+        return node;
+    }
+
+    @Override
+    public void clear() {
+        if (!heap.isEmpty()) {
+            Arrays.fill(handles, null);
+            heap.clear();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.itera.routing.utils;
+
+/**
+ * Min priority queue over dense node indices with double keys. Each node is contained at most once, an
+ * update with a smaller key decreases it in place instead of adding a duplicate.
+ */
+public interface IndexedPriorityQueue {
+
+    enum Type {
+        DARY,
+        FIBONACCI;
+
+        public IndexedPriorityQueue create(int capacity) {
+            return switch (this) {
+                case DARY -> new IndexedDaryHeap(capacity);
+                case FIBONACCI -> new IndexedFibonacciHeap(capacity);
+            };
+        }
+    }
+
+    boolean isEmpty();
+
+    int size();
+
+    boolean contains(int node);
+
+    /**
+     * Inserts the node, or decreases its key if it is already queued with a larger one.
+     */
+    void update(int node, double key);
+
+    double getMinKey();
+
+    /**
+     * Removes the node with the minimal key, -1 if the queue is empty.
+     */
+    int extractMin();
+
+    void clear();
+}
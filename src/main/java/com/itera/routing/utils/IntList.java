@@ -0,0 +1,64 @@
+package com.itera.routing.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, also used as a stack.
+ */
+public class IntList {
+
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int capacity) {
+        this.values = new int[Math.max(capacity, 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public void addAll(int[] other, int from, int to) {
+        int count = to - from;
+        if (size + count > values.length) {
+            values = Arrays.copyOf(values, Math.max(size * 2, size + count));
+        }
+        System.arraycopy(other, from, values, size, count);
+        size += count;
+    }
+
+    public int pop() {
+        return values[--size];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray(int from) {
+        return Arrays.copyOfRange(values, from, size);
+    }
+
+    public int[] toArray() {
+        return toArray(0);
+    }
+}
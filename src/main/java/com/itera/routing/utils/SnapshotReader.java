@@ -0,0 +1,87 @@
+package com.itera.routing.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Counterpart of {@link SnapshotWriter}. Arrays are not copied, every call maps the next region of the file
+ * read-only, so the data lives in the page cache and is shared by all processes mapping the same file.
+ * A single array is limited to 2GB.
+ */
+public class SnapshotReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private long position;
+
+    public SnapshotReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    public int readInt() throws IOException {
+        return read(Integer.BYTES).getInt();
+    }
+
+    public long readLong() throws IOException {
+        return read(Long.BYTES).getLong();
+    }
+
+    public IntBuffer mapInts(int count) throws IOException {
+        return map((long) count * Integer.BYTES).asIntBuffer();
+    }
+
+    public LongBuffer mapLongs(int count) throws IOException {
+        return map((long) count * Long.BYTES).asLongBuffer();
+    }
+
+    public DoubleBuffer mapDoubles(int count) throws IOException {
+        return map((long) count * Double.BYTES).asDoubleBuffer();
+    }
+
+    public FloatBuffer mapFloats(int count) throws IOException {
+        return map((long) count * Float.BYTES).asFloatBuffer();
+    }
+
+    public ByteBuffer mapBytes(int count) throws IOException {
+        return map(count);
+    }
+
+    private ByteBuffer read(int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot at " + position);
+            }
+        }
+        position += bytes;
+        return buffer.flip();
+    }
+
+    private ByteBuffer map(long bytes) throws IOException {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot section too large: " + bytes + " bytes");
+        }
+        align();
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ByteOrder.LITTLE_ENDIAN);
+        position += bytes;
+        align();
+        return buffer;
+    }
+
+    private void align() {
+        position = (position + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.itera.routing.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential little-endian writer for mappable snapshot files. Every array is padded to 8 bytes so that the
+ * {@link SnapshotReader} can map it with natural alignment.
+ */
+public class SnapshotWriter implements AutoCloseable {
+
+    private static final int CHUNK = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+    private long flushed;
+
+    public SnapshotWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+    }
+
+    public void writeInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    public void writeInts(IntBuffer values) throws IOException {
+        align();
+        for (int i = 0; i < values.limit(); i++) {
+            writeInt(values.get(i));
+        }
+        align();
+    }
+
+    public void writeLongs(LongBuffer values) throws IOException {
+        align();
+        for (int i = 0; i < values.limit(); i++) {
+            writeLong(values.get(i));
+        }
+        align();
+    }
+
+    public void writeDoubles(DoubleBuffer values) throws IOException {
+        align();
+        for (int i = 0; i < values.limit(); i++) {
+            ensure(Double.BYTES);
+            buffer.putDouble(values.get(i));
+        }
+        align();
+    }
+
+    public void writeFloats(FloatBuffer values) throws IOException {
+        align();
+        for (int i = 0; i < values.limit(); i++) {
+            ensure(Float.BYTES);
+            buffer.putFloat(values.get(i));
+        }
+        align();
+    }
+
+    public void writeBytes(ByteBuffer values) throws IOException {
+        align();
+        for (int i = 0; i < values.limit(); i++) {
+            ensure(1);
+            buffer.put(values.get(i));
+        }
+        align();
+    }
+
+    public void align() throws IOException {
+        while ((flushed + buffer.position()) % Long.BYTES != 0) {
+            ensure(1);
+            buffer.put((byte) 0);
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushed += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.force(true);
+        channel.close();
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.itera.routing.vizualization;
 
+import com.itera.routing.algos.CsrDijkstra;
 import com.itera.routing.algos.Dijkstra;
 import com.itera.routing.algos.alt.ALTData;
 import com.itera.routing.algos.alt.ALTHeuristics;
@@ -7,6 +8,7 @@ import com.itera.routing.algos.ch.CHData;
 import com.itera.routing.algos.ch.CHLoader;
 import com.itera.routing.loaders.CsvGraphLoader;
 import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
 import com.itera.routing.topology.Edge;
 import com.itera.routing.topology.Graph;
 import com.itera.routing.topology.Node;
@@ -36,6 +38,7 @@ import lombok.ToString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -266,113 +269,81 @@ public class RoutingVisualizer extends Application {
     @ToString
     class Mins {
         private double min;
-        private Node node;
-        private Edge edge;
+        private int node;
     }
 
     void chDijkstra(GraphicsContext gc, int pause, TextField settled, TextField length) {
 
-        Graph chGraph = chData.getGraph();
-        Node from = chGraph.getNode(fromId);
-        Node to = chGraph.getNode(toId);
+        CsrGraph chGraph = chData.getGraph();
+        IntBuffer ranks = chData.getRanks();
+        int from = chGraph.indexOf(fromId);
+        int to = chGraph.indexOf(toId);
 
-        Dijkstra dijkstraFwd = new Dijkstra(Dijkstra.Direction.FORWARD, n -> 0.0);
+        CsrDijkstra dijkstraFwd = new CsrDijkstra(chGraph, chData.getShortcuts(), Dijkstra.Direction.FORWARD, n -> 0.0);
         dijkstraFwd.initRouting(from);
-        dijkstraFwd.setNodeRestriction((node, neightbor) -> chData.getHierarchies().get(node) >= chData.getHierarchies()
-                                                                                                       .get(neightbor));
+        dijkstraFwd.setNodeRestriction((node, neighbour) -> ranks.get(node) >= ranks.get(neighbour));
 
-        Dijkstra dijkstraBckg = new Dijkstra(Dijkstra.Direction.BACKWARD, n -> 0.0);
+        CsrDijkstra dijkstraBckg = new CsrDijkstra(chGraph, chData.getShortcuts(), Dijkstra.Direction.BACKWARD, n -> 0.0);
         dijkstraBckg.initRouting(to);
-        dijkstraBckg.setNodeRestriction((node, neightbor) -> chData.getHierarchies()
-                                                                   .get(node) >= chData.getHierarchies()
-                                                                                       .get(neightbor));
+        dijkstraBckg.setNodeRestriction((node, neighbour) -> ranks.get(node) >= ranks.get(neighbour));
 
 
-        final Mins mins = new Mins(Double.MAX_VALUE, null, null);
+        final Mins mins = new Mins(Double.MAX_VALUE, -1);
         timeline = new Timeline(new KeyFrame(
             Duration.millis(pause),
             event -> {
 
-                dijkstraFwd.doStep(to);
-                dijkstraBckg.doStep(from);
-
-                Set<Node> visitedByFwd = dijkstraFwd.getVisited();
-                Set<Node> visitedByBckg = dijkstraBckg.getVisited();
-                Set<Node> overlap = visitedByFwd.stream()
-                    .filter(visitedByBckg::contains)
-                    .collect(Collectors.toSet());
-                Set<Edge> connectedEdges =  getConnectedEdges(dijkstraFwd, dijkstraBckg);
-
-                drawNode(dijkstraFwd.getLastVisited(), gc, 2 * nodeSize, Color.RED);
-                drawNode(dijkstraBckg.getLastVisited(), gc, 2 * nodeSize, Color.YELLOW);
-                settled.setText(String.valueOf(dijkstraFwd.getVisited().size() + dijkstraBckg.getVisited().size()));
+                boolean isRunning = dijkstraFwd.doStep(to) | dijkstraBckg.doStep(from);
 
-                if (!overlap.isEmpty() || !connectedEdges.isEmpty()) {
+                drawNode(chGraph, dijkstraFwd.getLastVisited(), gc, 2 * nodeSize, Color.RED);
+                drawNode(chGraph, dijkstraBckg.getLastVisited(), gc, 2 * nodeSize, Color.YELLOW);
+                settled.setText(String.valueOf(dijkstraFwd.getVisitedCount() + dijkstraBckg.getVisitedCount()));
 
-                    log.info("found overlap: {}", overlap);
-                    for (Node node : overlap) {
-                        double d1 = dijkstraFwd.getDistances().get(node);
-                        double d2 = dijkstraBckg.getDistances().get(node);
-                        double d = d1 + d2;
+                for (int node : new int[]{dijkstraFwd.getLastVisited(), dijkstraBckg.getLastVisited()}) {
+                    if (node >= 0 && dijkstraFwd.isVisited(node) && dijkstraBckg.isVisited(node)) {
+                        double d = dijkstraFwd.getDistance(node) + dijkstraBckg.getDistance(node);
                         if (d < mins.getMin()) {
                             mins.setMin(d);
                             mins.setNode(node);
                             log.info("updating min: {} to {}, {}", mins, d, node);
                         }
                     }
+                }
 
-                    for (Edge e : connectedEdges) {
-                        double d1 = dijkstraFwd.getDistances().get(e.getFrom());
-                        double d2 = dijkstraBckg.getDistances().get(e.getTo());
-                        double d = d1 + d2 + e.getWeight();
-
-                        if (d < mins.getMin()) {
-                            mins.setMin(d);
-                            mins.setEdge(e);
-                            log.info("updating min: {} to {}, {}", mins, d, e);
-                        }
-                    }
-
-                    double fwdMinKey = dijkstraFwd.getCandidateMinKey();
-                    double bckgMinKey = dijkstraBckg.getCandidateMinKey();
-                    log.info("fwdMinKey: {}, bckgMinKey: {}", fwdMinKey, bckgMinKey);
-
-                    if (fwdMinKey >= mins.getMin() || bckgMinKey >= mins.getMin()) {
-                        timeline.stop();
-                        log.info("stopping timeline");
-                        log.info("mins: {}", mins);
-
-                        ShortestPath sp = null;
-                        if (mins.getNode() != null) {
-                            ShortestPath shortestPathFwd = dijkstraFwd.findShortestPath(from, mins.getNode());
-                            ShortestPath shortestPathBckg = dijkstraBckg.findShortestPath(to, mins.getNode());
-                            sp = shortestPathFwd.add(shortestPathBckg);
-                        }
+                if (mins.getNode() < 0 && isRunning) {
+                    return;
+                }
 
-                        if (mins.getEdge() != null) {
-                            ShortestPath shortestPathFwd = dijkstraFwd.findShortestPath(from, mins.getEdge().getFrom());
-                            shortestPathFwd = shortestPathFwd.add(mins.edge);
-                            ShortestPath shortestPathBckg = dijkstraBckg.findShortestPath(to, mins.getEdge().getTo());
-                            sp = shortestPathFwd.add(shortestPathBckg);
-                        }
+                double fwdMinKey = dijkstraFwd.getCandidateMinKey();
+                double bckgMinKey = dijkstraBckg.getCandidateMinKey();
+                log.info("fwdMinKey: {}, bckgMinKey: {}", fwdMinKey, bckgMinKey);
 
-                        for (String e : sp.getEdges()) {
-                            drawEdge(chGraph.getEdges().get(e), gc, 8, Color.BLUE);
-                        }
+                if (fwdMinKey >= mins.getMin() || bckgMinKey >= mins.getMin() || !isRunning) {
+                    timeline.stop();
+                    log.info("stopping timeline");
+                    log.info("mins: {}", mins);
+                    if (mins.getNode() < 0) {
+                        return;
+                    }
 
-                        List<Edge> originals = chData.getOriginalEdges(sp.getEdges().stream()
-                            .map(id -> chGraph.getEdges().get(id))
-                            .toList());
-                        for (Edge e : originals) {
-                            drawEdge(e, gc, 4, Color.RED);
-                        }
+                    List<Integer> edges = new ArrayList<>();
+                    for (int n = mins.getNode(); dijkstraFwd.getParentEdge(n) >= 0; n = dijkstraFwd.getParent(n)) {
+                        edges.add(dijkstraFwd.getParentEdge(n));
+                    }
+                    for (int n = mins.getNode(); dijkstraBckg.getParentEdge(n) >= 0; n = dijkstraBckg.getParent(n)) {
+                        edges.add(dijkstraBckg.getParentEdge(n));
+                    }
 
-                        length.setText(String.valueOf((int) sp.getLength()));
+                    for (int e : edges) {
+                        drawEdge(chData, e, gc, 8, Color.BLUE);
+                    }
+                    for (int e : chData.getOriginalEdges(edges)) {
+                        drawEdge(chData, e, gc, 4, Color.RED);
                     }
 
+                    length.setText(String.valueOf((int) mins.getMin()));
                 }
 
-
             }
         ));
         timeline.setCycleCount(Timeline.INDEFINITE);
@@ -380,32 +351,6 @@ public class RoutingVisualizer extends Application {
 
     }
 
-    private Set<Edge> getConnectedEdges(Dijkstra fwd, Dijkstra bckg) {
-
-        Node lastFwd = fwd.getLastVisited();
-        Node lastBckg = bckg.getLastVisited();
-
-        Set<Edge> result = new HashSet<>();
-        for (Node n : bckg.getVisited()) {
-            for (Edge out : lastFwd.getOutEdges()) {
-                if (out.getTo().equals(n)) {
-                    result.add(out);
-                }
-            }
-        }
-
-        for (Node n : fwd.getVisited()) {
-            for (Edge in : lastBckg.getInEdges()) {
-                if (in.getFrom().equals(n)) {
-                    result.add(in);
-                }
-            }
-        }
-
-        return result;
-
-    }
-
 
     void initAlgo(GraphicsContext gc, TextField settled, TextField length) throws Exception {
         initCanvas(gc);
@@ -433,8 +378,9 @@ public class RoutingVisualizer extends Application {
     }
 
     private void drawShortcuts(GraphicsContext gc) {
-        for (Edge e : chData.getGraph().getEdges().values()) {
-            drawEdge(e, gc, 1, Color.BLUE);
+        int baseEdges = chData.getGraph().getEdgeCount();
+        for (int s = 0; s < chData.getShortcuts().getEdgeCount(); s++) {
+            drawEdge(chData, baseEdges + s, gc, 1, Color.BLUE);
         }
     }
 
@@ -444,18 +390,16 @@ public class RoutingVisualizer extends Application {
             "/Users/marian.rosko/Projects/home/routing/data/sk_edges.csv"
         );
 
-        altData = new ALTData("/Users/marian.rosko/Projects/home/routing/data/alt.dat");
-        altData.load();
-
         CHLoader chLoader = new CHLoader(
             "/Users/marian.rosko/Projects/home/routing/data/shortcuts.dat",
             "/Users/marian.rosko/Projects/home/routing/data/hierarchy.dat",
-            "/Users/marian.rosko/Projects/home/routing/data/definitions.dat",
-            loader
+            "/Users/marian.rosko/Projects/home/routing/data/definitions.dat"
         );
-        chData = chLoader.load();
 
         graph = loader.load();
+        CsrGraph csrGraph = CsrGraph.of(graph);
+        chData = chLoader.load(csrGraph);
+        altData = ALTData.load("/Users/marian.rosko/Projects/home/routing/data/alt.dat", csrGraph);
         lonMin = graph.lonMin();
         lonMax = graph.lonMax();
         latMin = graph.latMin();
@@ -498,6 +442,30 @@ public class RoutingVisualizer extends Application {
         );
     }
 
+    void drawNode(CsrGraph g, int node, GraphicsContext gc, int nodeSize, Color color) {
+        if (node >= 0) {
+            drawNode(graph.getNode(g.nodeId(node)), gc, nodeSize, color);
+        }
+    }
+
+    void drawEdge(CHData ch, int edge, GraphicsContext gc, int lineWidth, Color color) {
+
+        CsrGraph g = ch.isShortcut(edge) ? ch.getShortcuts() : ch.getGraph();
+        int e = ch.isShortcut(edge) ? edge - ch.getGraph().getEdgeCount() : edge;
+        Node from = graph.getNode(g.nodeId(g.source(e)));
+        Node to = graph.getNode(g.nodeId(g.target(e)));
+
+        gc.setLineWidth(lineWidth);
+        gc.setStroke(color);
+        gc.setLineDashes();
+        gc.strokeLine(
+            offset + calculateX(from.getLon()),
+            offset + calculateY(from.getLat()),
+            offset + calculateX(to.getLon()),
+            offset + calculateY(to.getLat())
+        );
+    }
+
     void drawEdge(Edge e, GraphicsContext gc, int lineWidth, Color color) {
 
         drawEdge(e, gc, lineWidth, color, null);
@@ -518,8 +486,8 @@ public class RoutingVisualizer extends Application {
 
     void drawALT(GraphicsContext gc) {
 
-        for (Long landmark : altData.getLandmarks()) {
-            Node n = graph.getNode(landmark);
+        for (int l = 0; l < altData.getLandmarkCount(); l++) {
+            Node n = graph.getNode(altData.getGraph().nodeId(altData.landmark(l)));
             if (n != null) {
                 drawNode(n, gc, 3 * nodeSize, Color.GREENYELLOW);
             }
@@ -1,10 +1,11 @@
 package com.itera.routing;
 
 import com.itera.routing.algos.Dijkstra;
+import com.itera.routing.algos.ch.CHLoader;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.algos.phast.PHAST;
 import com.itera.routing.loaders.CsvGraphLoader;
-import com.itera.routing.topology.Graph;
-import com.itera.routing.topology.Node;
-import lombok.RequiredArgsConstructor;
+import com.itera.routing.topology.CsrGraph;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.BufferedOutputStream;
@@ -12,86 +13,97 @@ import java.io.DataOutputStream;
 import java.io.FileOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
+/**
+ * Writes the ALT file read by {@code ALTData.load}. Landmark distance tables come from forward and backward
+ * {@link PHAST} sweeps over the contraction hierarchy.
+ */
 @Slf4j
-@RequiredArgsConstructor
 public class AltGenerator {
 
-    private final Graph graph;
+    private final CsrGraph graph;
     private final String altPath;
+    private final PHAST fwd;
+    private final PHAST bckg;
 
     private static final double MAX = 900000000.0;
     private static final double MIN = 40000.0;
 
+    public AltGenerator(CsrGraph graph, CHQueryGraph queryGraph, String altPath) {
+        this.graph = graph;
+        this.altPath = altPath;
+        this.fwd = new PHAST(queryGraph, Dijkstra.Direction.FORWARD, 1);
+        this.bckg = new PHAST(queryGraph, Dijkstra.Direction.BACKWARD, 1);
+    }
+
     public static void main(String[] args) throws Exception {
 
         CsvGraphLoader loader = new CsvGraphLoader(
             "/Users/marian.rosko/Projects/home/routing/data/sk_nodes.csv",
             "/Users/marian.rosko/Projects/home/routing/data/sk_edges.csv"
         );
-        Graph graph = loader.load();
-        AltGenerator generator = new AltGenerator(graph, "/Users/marian.rosko/Projects/home/routing/data/alt.dat");
+        CHLoader chLoader = new CHLoader(
+            "/Users/marian.rosko/Projects/home/routing/data/shortcuts.dat",
+            "/Users/marian.rosko/Projects/home/routing/data/hierarchy.dat",
+            "/Users/marian.rosko/Projects/home/routing/data/definitions.dat"
+        );
+        CsrGraph graph = loader.loadCsr();
+        CHQueryGraph queryGraph = new CHQueryGraph(chLoader.load(graph));
+        AltGenerator generator = new AltGenerator(graph, queryGraph, "/Users/marian.rosko/Projects/home/routing/data/alt.dat");
 
-        generator.generate(List.of(graph.getRandomNode().getId()), 14);
+        int randomNode = new Random().nextInt(graph.getNodeCount());
+        generator.generate(List.of(graph.nodeId(randomNode)), 14);
 
     }
 
     public void generate(Collection<Long> nodeIds, int landmarkNum) throws Exception {
 
-        Dijkstra fwd = new Dijkstra(Dijkstra.Direction.FORWARD, n -> 0.0);
-        Dijkstra bckg = new Dijkstra(Dijkstra.Direction.BACKWARD, n -> 0.0);
-
         DataOutputStream das = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(altPath)));
 
         int localLandmarkNum = landmarkNum / nodeIds.size();
         if (localLandmarkNum == 0) {
             localLandmarkNum = 1;
         }
+        int n = graph.getNodeCount();
         int totalNodesFound = 0;
         Set<Long> foundNodes = new HashSet<>();
-        Set<Node> forbiddenNodes = new HashSet<>();
+        Set<Integer> forbiddenNodes = new HashSet<>();
 
         for (long nodeId : nodeIds) {
 
-            Map<Node, Map<Node, Double>> altDistancesTo = new HashMap<>();
-            Map<Node, Map<Node, Double>> altDistancesFrom = new HashMap<>();
+            List<Integer> altNodes = new ArrayList<>();
+            List<double[]> altDistancesFrom = new ArrayList<>();
 
-            Node altNode = graph.getNode(nodeId);
+            int altNode = graph.indexOf(nodeId);
             int localAltFound = 0;
 
             while (true) {
 
-                altDistancesTo.put(altNode, new HashMap<>());
-                altDistancesFrom.put(altNode, new HashMap<>());
+                log.info("{}th ATL node: {}", totalNodesFound, graph.nodeId(altNode));
+                fwd.run(altNode);
+                bckg.run(altNode);
+                double[] distancesTo = fwd.distances(0);
+                double[] distancesFrom = bckg.distances(0);
 
-                log.info("{}th ATL node: {}, GPS: {}", totalNodesFound, altNode, altNode.toPositionString());
-                fwd.route(altNode);
-                bckg.route(altNode);
-
-                boolean isNodeOk = isAltNodeOk(altNode);
-                if (isNodeOk) {
-                    log.debug("ALT Node: {} is OK. Writing...", altNode);
+                if (isAltNodeOk(distancesFrom)) {
+                    log.debug("ALT Node: {} is OK. Writing...", graph.nodeId(altNode));
                     totalNodesFound++;
                     localAltFound++;
-
-                    for (Node node : graph.getNodes().values()) {
-                        Double distanceTo = check("fwd", fwd.getDistances().get(node), altNode, node);
-                        Double distanceFrom = check("bckg", bckg.getDistances().get(node), altNode, node);
-
-
-                        altDistancesTo.get(altNode).put(node, distanceTo);
-                        altDistancesFrom.get(altNode).put(node, distanceFrom);
-
-                        das.writeLong(altNode.getId());
-                        das.writeLong(node.getId());
-                        das.writeDouble(distanceTo);
-                        das.writeDouble(distanceFrom);
+                    altNodes.add(altNode);
+                    altDistancesFrom.add(distancesFrom);
+
+                    for (int node = 0; node < n; node++) {
+                        das.writeLong(graph.nodeId(altNode));
+                        das.writeLong(graph.nodeId(node));
+                        das.writeDouble(check(distancesTo[node]));
+                        das.writeDouble(check(distancesFrom[node]));
                     }
+                } else {
+                    forbiddenNodes.add(altNode);
                 }
 
                 if (localAltFound >= localLandmarkNum) {
@@ -99,110 +111,75 @@ public class AltGenerator {
                     break;
                 }
 
-                boolean isSearching = true;
-                while (isSearching) {
-                    altNode = chooseNextAltNode(altDistancesFrom, forbiddenNodes);
-                    if (!isAltNodeOk(altNode)) {
-                        forbiddenNodes.add(altNode);
-                    } else {
-                        isSearching = false;
-                        foundNodes.add(altNode.getId());
-                    }
+                altNode = chooseNextAltNode(altNodes, altDistancesFrom, forbiddenNodes);
+                if (altNode < 0) {
+                    log.warn("no further ALT candidate found");
+                    break;
                 }
-
+                foundNodes.add(graph.nodeId(altNode));
             }
 
         }
 
+        das.writeLong(-1);
+        das.close();
         System.out.println(foundNodes);
     }
 
-    private Double check(String dijkstra, Double dist, Node from, Node to) {
-        if (dist == null) {
-            //log.error("dijkstra: {}, from: {}, to: {} is null", dijkstra, from, to);
-            return Double.MAX_VALUE;
-        }
-        return dist;
+    private double check(double dist) {
+        return dist == Double.POSITIVE_INFINITY ? Double.MAX_VALUE : dist;
     }
 
-    private boolean isAltNodeOk(Node altNode) {
+    private boolean isAltNodeOk(double[] distancesFrom) {
 
-        Dijkstra dijkstaB = new Dijkstra(Dijkstra.Direction.BACKWARD, n -> 0.0);
-        dijkstaB.route(altNode);
-
-        for (Node node : graph.getNodes().values()) {
-            Double distance = dijkstaB.getDistances().get(node);
-            if (distance!=null && distance < MAX && distance > MIN) {
-                log.info("next ALT candidate: {} is OK node", altNode);
+        for (double distance : distancesFrom) {
+            if (distance < MAX && distance > MIN) {
                 return true;
             }
         }
 
-        log.warn("next ALT candidate: {} is NOT OK, search will be repeated", altNode);
+        log.warn("ALT candidate is NOT OK, search will be repeated");
         return false;
     }
 
-    private Node chooseNextAltNode(Map<Node, Map<Node, Double>> altDistancesFrom, Set<Node> forbiddenNodes) {
-
-        Map<Node, List<Double>> distances = new HashMap<>();
-        for (Node altNode : altDistancesFrom.keySet()) {
-            for (Node node : altDistancesFrom.get(altNode).keySet()) {
-
-                double dist = altDistancesFrom.get(altNode).get(node);
-                if (dist > MAX) {
-                    continue;
-                }
-                if (distances.containsKey(node)) {
-                    distances.get(node).add(dist);
-                } else {
-                    List<Double> dists = new ArrayList<>();
-                    dists.add(dist);
-                    distances.put(node, dists);
-                }
-            }
-        }
+    private int chooseNextAltNode(List<Integer> altNodes, List<double[]> altDistancesFrom, Set<Integer> forbiddenNodes) {
 
         double maxDistance = 0;
-        Node newAltNode = null;
-        for (Node node : distances.keySet()) {
+        int newAltNode = -1;
+        for (int node = 0; node < graph.getNodeCount(); node++) {
 
-            if (altDistancesFrom.keySet().contains(node)) {
-                continue;
-            }
-            if (distances.get(node) == null || distances.get(node).size() < altDistancesFrom.keySet().size()) {
-                continue;
-            }
-            if (forbiddenNodes.contains(node)) {
+            if (altNodes.contains(node) || forbiddenNodes.contains(node)) {
                 continue;
             }
 
-            double avg = avg(distances.get(node));
+            double avg = avg(altDistancesFrom, node);
             if (avg > maxDistance) {
                 maxDistance = avg;
                 newAltNode = node;
             }
         }
 
-        log.info("max. dist: {}, distances: {}", maxDistance, altDistancesFrom.keySet().size());
+        log.info("max. dist: {}, distances: {}", maxDistance, altDistancesFrom.size());
         return newAltNode;
     }
 
+    /**
+     * Average distance from the node to the landmarks; -1 if one of them is unreachable or too close.
+     */
+    private double avg(List<double[]> altDistancesFrom, int node) {
 
-    private double avg(List<Double> values) {
-
+        if (altDistancesFrom.isEmpty()) {
+            return -1;
+        }
         double sum = 0;
-        boolean isTooClose = false;
-        for (double value : values) {
-            if (value < MIN) {
-                isTooClose = true;
+        for (double[] distances : altDistancesFrom) {
+            double value = distances[node];
+            if (value > MAX || value < MIN) {
+                return -1;
             }
             sum = sum + value;
         }
-        if (!isTooClose) {
-            return sum / values.size();
-        } else {
-            return -1;
-        }
+        return sum / altDistancesFrom.size();
 
     }
 
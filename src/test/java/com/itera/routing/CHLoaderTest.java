@@ -2,6 +2,7 @@ package com.itera.routing;
 
 import com.itera.routing.algos.ch.CHLoader;
 import com.itera.routing.loaders.CsvGraphLoader;
+import com.itera.routing.topology.CsrGraph;
 
 public class CHLoaderTest {
 
@@ -15,10 +16,9 @@ public class CHLoaderTest {
         CHLoader chLoader = new CHLoader(
             "/Users/marian.rosko/Projects/home/routing/data/shortcuts.dat",
             "/Users/marian.rosko/Projects/home/routing/data/hierarchy.dat",
-            "/Users/marian.rosko/Projects/home/routing/data/definitions.dat",
-            loader
+            "/Users/marian.rosko/Projects/home/routing/data/definitions.dat"
         );
 
-        chLoader.load();
+        chLoader.load(CsrGraph.of(loader.load()));
     }
 }
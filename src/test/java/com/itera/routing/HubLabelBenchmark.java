@@ -0,0 +1,94 @@
+package com.itera.routing;
+
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.ch.CHData;
+import com.itera.routing.algos.ch.CHLoader;
+import com.itera.routing.algos.ch.CHQuery;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.algos.ch.ShortcutUnpacker;
+import com.itera.routing.algos.hl.HubLabels;
+import com.itera.routing.loaders.CsvGraphLoader;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Random;
+
+/**
+ * Compares hub label queries with the CH query behind {@code /dijkstra/ch} on the same random node pairs.
+ */
+@Slf4j
+public class HubLabelBenchmark {
+
+    private static final int QUERIES = 100_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+
+        CsvGraphLoader loader = new CsvGraphLoader(
+            "/Users/marian.rosko/Projects/home/routing/data/sk_nodes.csv",
+            "/Users/marian.rosko/Projects/home/routing/data/sk_edges.csv"
+        );
+        CHLoader chLoader = new CHLoader(
+            "/Users/marian.rosko/Projects/home/routing/data/shortcuts.dat",
+            "/Users/marian.rosko/Projects/home/routing/data/hierarchy.dat",
+            "/Users/marian.rosko/Projects/home/routing/data/definitions.dat"
+        );
+
+        CsrGraph graph = loader.loadCsr();
+        CHData chData = chLoader.load(graph);
+        CHQueryGraph queryGraph = new CHQueryGraph(chData);
+        HubLabels labels = HubLabels.build(queryGraph);
+        ShortcutUnpacker unpacker = new ShortcutUnpacker(chData, 0);
+
+        int n = graph.getNodeCount();
+        Random random = new Random(42);
+        int[] from = new int[QUERIES];
+        int[] to = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            from[i] = random.nextInt(n);
+            to[i] = random.nextInt(n);
+        }
+
+        SearchWorkspace fwd = new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY);
+        SearchWorkspace bckg = new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY);
+        CHQuery query = new CHQuery(queryGraph, unpacker, fwd, bckg);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            int mismatches = 0;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                query.route(from[i], to[i]);
+            }
+            long ch = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                labels.distance(from[i], to[i]);
+            }
+            long hl = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                labels.findShortestPath(from[i], to[i], unpacker);
+            }
+            long hlPath = System.nanoTime() - start;
+
+            for (int i = 0; i < QUERIES; i += 100) {
+                if (Math.abs(query.route(from[i], to[i]) - labels.distance(from[i], to[i])) > 1e-6) {
+                    mismatches++;
+                }
+            }
+
+            log.info(
+                "round {}: CH {} µs, HL distance {} µs, HL path {} µs per query, {} mismatches",
+                round,
+                ch / QUERIES / 1000.0,
+                hl / QUERIES / 1000.0,
+                hlPath / QUERIES / 1000.0,
+                mismatches
+            );
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.itera.routing;
+
+import com.itera.routing.algos.CsrDijkstra;
+import com.itera.routing.algos.Dijkstra;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.topology.Edge;
+import com.itera.routing.topology.Graph;
+import com.itera.routing.topology.Node;
+import com.itera.routing.utils.IndexedPriorityQueue;
+
+import java.util.Random;
+
+/**
+ * Small graphs for tests.
+ */
+public final class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    /**
+     * Path 1 → 2 → ... with the given edge weights; nodes lie on a line of longitude.
+     */
+    public static CsrGraph line(double... weights) {
+        Graph graph = new Graph();
+        for (int i = 0; i <= weights.length; i++) {
+            graph.getNodes().put(i + 1L, new Node(i + 1L, 17.0, 48.0 + i * 0.01));
+        }
+        for (int i = 0; i < weights.length; i++) {
+            addEdge(graph, "e" + i, i + 1L, i + 2L, weights[i]);
+        }
+        return CsrGraph.of(graph);
+    }
+
+    /**
+     * Grid of w × h nodes with random edge weights in both directions; about a tenth of the edges is missing,
+     * and with {@code zeroWeights} about a third of the others has weight 0.
+     */
+    public static CsrGraph grid(int w, int h, long seed, boolean zeroWeights) {
+        Random random = new Random(seed);
+        Graph graph = new Graph();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                long id = 1000L + (long) y * w + x;
+                graph.getNodes().put(id, new Node(id, 17.0 + x * 0.01, 48.0 + y * 0.01));
+            }
+        }
+        int e = 0;
+        int[][] directions = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                for (int[] d : directions) {
+                    int nx = x + d[0];
+                    int ny = y + d[1];
+                    if (nx < 0 || ny < 0 || nx >= w || ny >= h || random.nextDouble() < 0.1) {
+                        continue;
+                    }
+                    double weight = zeroWeights && random.nextDouble() < 0.3 ? 0.0 : 500 + random.nextInt(1000);
+                    addEdge(graph, "e" + e++, 1000L + (long) y * w + x, 1000L + (long) ny * w + nx, weight);
+                }
+            }
+        }
+        return CsrGraph.of(graph);
+    }
+
+    /**
+     * Reference distance by a plain Dijkstra between node indices.
+     */
+    public static double distance(CsrGraph graph, int from, int to) {
+        SearchWorkspace workspace = new SearchWorkspace(graph.getNodeCount(), IndexedPriorityQueue.Type.DARY);
+        CsrDijkstra dijkstra = new CsrDijkstra(graph, null, Dijkstra.Direction.FORWARD, n -> 0.0, workspace);
+        dijkstra.route(from);
+        return dijkstra.getDistance(to);
+    }
+
+    private static void addEdge(Graph graph, String id, long from, long to, double weight) {
+        Node a = graph.getNode(from);
+        Node b = graph.getNode(to);
+        Edge edge = new Edge(id, a, b, weight, 50);
+        a.getOutEdges().add(edge);
+        b.getInEdges().add(edge);
+        graph.getEdges().put(id, edge);
+    }
+}
@@ -0,0 +1,71 @@
+package com.itera.routing.algos.alt;
+
+import com.itera.routing.TestGraphs;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.ch.CHData;
+import com.itera.routing.algos.ch.CHPreprocessor;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.algos.ch.ShortcutUnpacker;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CoreALTQueryTest {
+
+    @Test
+    void matchesDijkstraWithSmallCore() {
+        assertMatchesDijkstra(TestGraphs.grid(14, 14, 3, false), 0.1);
+    }
+
+    @Test
+    void matchesDijkstraWithWholeGraphAsCore() {
+        assertMatchesDijkstra(TestGraphs.grid(14, 14, 3, false), 1.0);
+    }
+
+    @Test
+    void matchesDijkstraWithZeroWeights() {
+        assertMatchesDijkstra(TestGraphs.grid(14, 14, 5, true), 0.2);
+    }
+
+    /**
+     * Near-equal weights far beyond float precision: the landmark tables are rounded and paths differ by less
+     * than one rounding step.
+     */
+    @Test
+    void matchesDijkstraWithRoundedLandmarkDistances() {
+        CsrGraph grid = TestGraphs.grid(12, 12, 7, false);
+        Random random = new Random(7);
+        double[] weights = new double[grid.getEdgeCount()];
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] = 1e7 + random.nextInt(4) * 0.75 + random.nextDouble() * 0.01;
+        }
+        CsrGraph graph = grid.withWeights(weights);
+        assertMatchesDijkstra(graph, 0.1);
+        assertMatchesDijkstra(graph, 1.0);
+    }
+
+    private static void assertMatchesDijkstra(CsrGraph graph, double coreFraction) {
+        CHData chData = new CHPreprocessor(graph).build();
+        CHQueryGraph queryGraph = new CHQueryGraph(chData);
+        CoreALT core = new CoreALT(queryGraph, coreFraction, 8);
+        int n = graph.getNodeCount();
+        CoreALTQuery query = new CoreALTQuery(
+            core,
+            new ShortcutUnpacker(chData, 0),
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY),
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY)
+        );
+
+        Random random = new Random(23);
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            double expected = TestGraphs.distance(graph, from, to);
+            assertEquals(expected, query.route(from, to), Math.max(1e-6, expected * 1e-12), from + " -> " + to);
+        }
+    }
+}
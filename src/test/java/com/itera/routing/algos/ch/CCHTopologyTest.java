@@ -0,0 +1,69 @@
+package com.itera.routing.algos.ch;
+
+import com.itera.routing.TestGraphs;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CCHTopologyTest {
+
+    @Test
+    void matchesDijkstraAfterCustomization() {
+        CsrGraph graph = TestGraphs.grid(12, 12, 3, false);
+        CCHTopology topology = new CCHTopology(graph);
+        assertMatchesDijkstra(graph, topology.customize(topology.getWeights()));
+    }
+
+    @Test
+    void matchesDijkstraWithZeroWeights() {
+        CsrGraph graph = TestGraphs.grid(12, 12, 5, true);
+        CCHTopology topology = new CCHTopology(graph);
+        assertMatchesDijkstra(graph, topology.customize(topology.getWeights()));
+    }
+
+    @Test
+    void matchesDijkstraAfterRecustomization() {
+        CsrGraph graph = TestGraphs.grid(12, 12, 7, false);
+        CCHTopology topology = new CCHTopology(graph);
+        double[] weights = topology.getWeights();
+        assertMatchesDijkstra(graph, topology.customize(weights));
+
+        Random random = new Random(7);
+        double[] next = weights.clone();
+        for (int e = 0; e < next.length; e++) {
+            if (random.nextInt(4) == 0) {
+                next[e] = 500 + random.nextInt(3000);
+            }
+        }
+        next[random.nextInt(next.length)] = Double.POSITIVE_INFINITY;
+        for (int e = 0; e < next.length; e++) {
+            if (graph.target(e) == 0) {
+                next[e] = Double.POSITIVE_INFINITY;
+            }
+        }
+        assertMatchesDijkstra(graph.withWeights(next), topology.customize(next));
+    }
+
+    private static void assertMatchesDijkstra(CsrGraph graph, CHData chData) {
+        CHQueryGraph queryGraph = new CHQueryGraph(chData);
+        int n = graph.getNodeCount();
+        CHQuery query = new CHQuery(
+            queryGraph,
+            new ShortcutUnpacker(chData, 0),
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY),
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY)
+        );
+
+        Random random = new Random(17);
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            assertEquals(TestGraphs.distance(graph, from, to), query.route(from, to), 1e-6, from + " -> " + to);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.itera.routing.algos.ch;
+
+import com.itera.routing.TestGraphs;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CHPreprocessorTest {
+
+    @Test
+    void matchesDijkstraWithPositiveWeights() {
+        assertMatchesDijkstra(TestGraphs.grid(12, 12, 3, false));
+    }
+
+    @Test
+    void matchesDijkstraWithZeroWeights() {
+        assertMatchesDijkstra(TestGraphs.grid(12, 12, 5, true));
+    }
+
+    @Test
+    void contractsZeroLengthPaths() {
+        CsrGraph graph = TestGraphs.line(0.0, 0.0, 10.0);
+        assertMatchesDijkstra(graph);
+    }
+
+    private static void assertMatchesDijkstra(CsrGraph graph) {
+        CHData chData = new CHPreprocessor(graph).build();
+        CHQueryGraph queryGraph = new CHQueryGraph(chData);
+        int n = graph.getNodeCount();
+        CHQuery query = new CHQuery(
+            queryGraph,
+            new ShortcutUnpacker(chData, 0),
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY),
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY)
+        );
+
+        Random random = new Random(17);
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            assertEquals(TestGraphs.distance(graph, from, to), query.route(from, to), 1e-6, from + " -> " + to);
+        }
+    }
+}
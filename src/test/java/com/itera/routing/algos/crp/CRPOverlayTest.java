@@ -0,0 +1,90 @@
+package com.itera.routing.algos.crp;
+
+import com.itera.routing.TestGraphs;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.SearchWorkspacePool;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CRPOverlayTest {
+
+    @Test
+    void matchesDijkstraWithPositiveWeights() {
+        CsrGraph graph = TestGraphs.grid(16, 16, 3, false);
+        CRPOverlay overlay = overlay(graph);
+        assertMatchesDijkstra(graph, overlay, overlay.customize(weights(graph)));
+    }
+
+    @Test
+    void matchesDijkstraWithZeroWeights() {
+        CsrGraph graph = TestGraphs.grid(16, 16, 5, true);
+        CRPOverlay overlay = overlay(graph);
+        assertMatchesDijkstra(graph, overlay, overlay.customize(weights(graph)));
+    }
+
+    @Test
+    void partialCustomizationMatchesFullCustomization() {
+        CsrGraph graph = TestGraphs.grid(16, 16, 7, false);
+        CRPOverlay overlay = overlay(graph);
+        double[] weights = weights(graph);
+        CRPMetric previous = overlay.customize(weights);
+
+        Random random = new Random(7);
+        double[] next = weights.clone();
+        int[] changed = new int[24];
+        for (int i = 0; i < changed.length; i++) {
+            changed[i] = random.nextInt(next.length);
+            next[changed[i]] = 500 + random.nextInt(3000);
+        }
+        next[changed[0]] = Double.POSITIVE_INFINITY;
+
+        CRPMetric partial = overlay.customize(previous, next, changed);
+        CRPMetric full = overlay.customize(next);
+        assertTrue(partial.getCustomizedCells() < full.getCustomizedCells(), "all cells customized");
+        for (int level = 0; level < full.getMatrices().length; level++) {
+            assertArrayEquals(full.getMatrices()[level], partial.getMatrices()[level], "level " + level);
+        }
+        assertMatchesDijkstra(graph.withWeights(next), overlay, partial);
+    }
+
+    private static CRPOverlay overlay(CsrGraph graph) {
+        return new CRPOverlay(
+            graph,
+            8,
+            3,
+            new SearchWorkspacePool(graph.getNodeCount(), IndexedPriorityQueue.Type.DARY)
+        );
+    }
+
+    private static double[] weights(CsrGraph graph) {
+        double[] weights = new double[graph.getEdgeCount()];
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] = graph.weight(e);
+        }
+        return weights;
+    }
+
+    private static void assertMatchesDijkstra(CsrGraph graph, CRPOverlay overlay, CRPMetric metric) {
+        int n = graph.getNodeCount();
+        CRPQuery query = new CRPQuery(
+            overlay,
+            metric,
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY),
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY)
+        );
+
+        Random random = new Random(29);
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            assertEquals(TestGraphs.distance(graph, from, to), query.route(from, to), 1e-6, from + " -> " + to);
+        }
+    }
+}
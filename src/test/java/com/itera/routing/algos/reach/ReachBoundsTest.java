@@ -0,0 +1,59 @@
+package com.itera.routing.algos.reach;
+
+import com.itera.routing.TestGraphs;
+import com.itera.routing.algos.CsrDijkstra;
+import com.itera.routing.algos.Dijkstra;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.model.ShortestPath;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReachBoundsTest {
+
+    @Test
+    void reachAtTheLimitIsNotBoundedBelowIt() {
+        CsrGraph graph = TestGraphs.line(1.9, 0.9, 0.9, 1.9);
+        ReachBounds reach = new ReachBounds(graph, 1.0);
+
+        int middle = graph.indexOf(3);
+        assertTrue(reach.reach(middle) >= 1.0, "reach of node 3 is 2.8, got " + reach.reach(middle));
+
+        int from = graph.indexOf(1);
+        int to = graph.indexOf(5);
+        ShortestPath path = reach.findShortestPath(from, to, exactBound(graph, to), workspace(graph));
+        assertEquals(5.6, path.getLength(), 1e-9);
+        assertEquals(5, path.getNodes().size());
+    }
+
+    @Test
+    void matchesDijkstraOnGrid() {
+        CsrGraph graph = TestGraphs.grid(14, 14, 7, false);
+        ReachBounds reach = new ReachBounds(graph, 3000);
+        Random random = new Random(11);
+        SearchWorkspace workspace = workspace(graph);
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(graph.getNodeCount());
+            int to = random.nextInt(graph.getNodeCount());
+            double expected = TestGraphs.distance(graph, from, to);
+            double length = reach.findShortestPath(from, to, exactBound(graph, to), workspace).getLength();
+            assertEquals(expected == Double.POSITIVE_INFINITY ? Double.MAX_VALUE : expected, length, 1e-6);
+        }
+    }
+
+    private static IntToDoubleFunction exactBound(CsrGraph graph, int to) {
+        CsrDijkstra backward = new CsrDijkstra(graph, null, Dijkstra.Direction.BACKWARD, n -> 0.0, workspace(graph));
+        backward.route(to);
+        return backward::getDistance;
+    }
+
+    private static SearchWorkspace workspace(CsrGraph graph) {
+        return new SearchWorkspace(graph.getNodeCount(), IndexedPriorityQueue.Type.DARY);
+    }
+}
@@ -0,0 +1,64 @@
+package com.itera.routing.algos.tnr;
+
+import com.itera.routing.TestGraphs;
+import com.itera.routing.algos.SearchWorkspace;
+import com.itera.routing.algos.ch.CHData;
+import com.itera.routing.algos.ch.CHPreprocessor;
+import com.itera.routing.algos.ch.CHQuery;
+import com.itera.routing.algos.ch.CHQueryGraph;
+import com.itera.routing.algos.ch.ShortcutUnpacker;
+import com.itera.routing.topology.CsrGraph;
+import com.itera.routing.utils.IndexedPriorityQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransitNodeRoutingTest {
+
+    @Test
+    void matchesDijkstraWithPositiveWeights() {
+        assertMatchesDijkstra(TestGraphs.grid(16, 16, 3, false));
+    }
+
+    @Test
+    void matchesDijkstraWithZeroWeights() {
+        assertMatchesDijkstra(TestGraphs.grid(16, 16, 5, true));
+    }
+
+    /**
+     * Few transit nodes, so both local queries on the CH and table lookups are covered.
+     */
+    private static void assertMatchesDijkstra(CsrGraph graph) {
+        CHData chData = new CHPreprocessor(graph).build();
+        CHQueryGraph queryGraph = new CHQueryGraph(chData);
+        TransitNodeRouting tnr = new TransitNodeRouting(queryGraph, 8);
+        int n = graph.getNodeCount();
+        ShortcutUnpacker unpacker = new ShortcutUnpacker(chData, 0);
+        CHQuery query = new CHQuery(
+            queryGraph,
+            unpacker,
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY),
+            new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY)
+        );
+        SearchWorkspace local = new SearchWorkspace(n, IndexedPriorityQueue.Type.DARY);
+
+        Random random = new Random(19);
+        int localCount = 0;
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            double expected = TestGraphs.distance(graph, from, to);
+            String pair = from + " -> " + to;
+            assertEquals(expected, tnr.distance(from, to, query), 1e-6, pair);
+            assertEquals(expected, tnr.findShortestPath(from, to, query, local, unpacker).getLength(), 1e-6, pair);
+            if (tnr.isLocal(from, to)) {
+                localCount++;
+            }
+        }
+        assertTrue(localCount > 0, "no local query");
+        assertTrue(localCount < 300, "no table query");
+    }
+}